@@ -2,7 +2,8 @@ USE `product_crud_db`;
 
 CREATE TABLE IF NOT EXISTS `categories` (
     `id` INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
-    `name` VARCHAR(200) NOT NULL
+    `name` VARCHAR(200) NOT NULL,
+    `version` BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS `products` (
@@ -11,5 +12,48 @@ CREATE TABLE IF NOT EXISTS `products` (
     `code` VARCHAR(50) NOT NULL,
     `price` DOUBLE,
     `category_id` INT,
+    `version` BIGINT NOT NULL DEFAULT 0,
+    `change_version` BIGINT NOT NULL DEFAULT 0,
+     UNIQUE KEY uk_products_code (code),
+     -- Filters and sort orders of GET /products. InnoDB appends the primary key to every secondary index,
+     -- so each of these also covers the id tiebreaker of the keyset cursor.
+     KEY idx_products_category (category_id),
+     KEY idx_products_category_price (category_id, price),
+     KEY idx_products_category_name (category_id, name),
+     KEY idx_products_price (price),
+     KEY idx_products_name (name),
+     -- GET /products/changes, in (change_version, id) order.
+     KEY idx_products_change_version (change_version),
      FOREIGN KEY fk_products_categories (category_id) REFERENCES categories (id)
 );
+
+CREATE TABLE IF NOT EXISTS `sequences` (
+    `name` VARCHAR(50) PRIMARY KEY NOT NULL,
+    `next_value` BIGINT NOT NULL
+);
+
+-- Deleted products for GET /products/changes, purged after product.changes.tombstone-retention.
+CREATE TABLE IF NOT EXISTS `product_tombstones` (
+    `product_id` INT PRIMARY KEY NOT NULL,
+    `code` VARCHAR(50),
+    `category_id` INT,
+    `change_version` BIGINT NOT NULL,
+    `deleted_at` TIMESTAMP(6),
+     KEY idx_product_tombstones_change_version (change_version)
+);
+
+-- Responses by Idempotency-Key, only used with product.idempotency.database-enabled=true.
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+    `idempotency_key` VARCHAR(300) PRIMARY KEY NOT NULL,
+    `fingerprint` VARCHAR(64),
+    `response` TEXT,
+    `created_at` TIMESTAMP(6),
+     KEY idx_idempotency_keys_created_at (created_at)
+);
+
+INSERT IGNORE INTO `sequences` (`name`, `next_value`)
+SELECT 'product_code', COALESCE(MAX(CAST(SUBSTRING(`code`, 2) AS UNSIGNED)), 0) + 1
+FROM `products`
+WHERE `code` REGEXP '^P[0-9]{5}$';
+
+INSERT IGNORE INTO `sequences` (`name`, `next_value`) VALUES ('product_change', 1), ('product_change_horizon', 0);
@@ -0,0 +1,85 @@
+package com.restful.product_crud.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@code GET /products} page as JSON, CBOR and Smile. The encoded sizes do not depend on
+ * the machine and are listed in the README next to the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private WebResponse<List<ProductResponse>> response;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<ProductResponse> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(ProductResponse.builder()
+                    .id(i)
+                    .code(String.format("P%05d", i))
+                    .name("Product " + i)
+                    .price(i * 10.5)
+                    .category(CategoryResponse.builder().id(i % 20).name("Category " + (i % 20)).build())
+                    .build());
+        }
+
+        response = WebResponse.<List<ProductResponse>>builder().status("success").data(products).build();
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            default -> new ObjectMapper();
+        };
+        writer = objectMapper.writerFor(WebResponse.class);
+        reader = objectMapper.readerFor(new TypeReference<WebResponse<List<ProductResponse>>>() {});
+        encoded = writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws Exception {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public WebResponse<List<ProductResponse>> readValue() throws Exception {
+        return reader.readValue(encoded);
+    }
+
+}
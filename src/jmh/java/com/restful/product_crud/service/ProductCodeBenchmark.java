@@ -0,0 +1,65 @@
+package com.restful.product_crud.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Product code validation and generation. {@link #validateCodeWithPatternMatches()} is the previous
+ * implementation, which compiled the regex on every call, kept as a baseline.
+ * <p>
+ * Generation runs without a database: the generator is given one block large enough for the whole run, so the
+ * benchmark measures the lock-free hand-out path that almost every call takes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductCodeBenchmark {
+
+    // Wide enough that the single block below never runs out. The codes are built for the same width, so one is
+    // accepted and the other rejected on its third character.
+    private static final int WIDTH = 18;
+
+    private static final String REGEX = "^P\\d{" + WIDTH + "}$";
+
+    private static final String VALID_CODE = "P" + "0".repeat(WIDTH - 2) + "42";
+
+    private static final String INVALID_CODE = "PD" + "0".repeat(WIDTH - 3) + "42";
+
+    private ProductCodeGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = ProductCodeGenerator.detached("P", WIDTH, 1, Long.MAX_VALUE / 10, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public boolean validateCode() {
+        return generator.validateCode(VALID_CODE) & generator.validateCode(INVALID_CODE);
+    }
+
+    @Benchmark
+    public boolean validateCodeWithPatternMatches() {
+        return Pattern.matches(REGEX, VALID_CODE) & Pattern.matches(REGEX, INVALID_CODE);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate();
+    }
+
+}
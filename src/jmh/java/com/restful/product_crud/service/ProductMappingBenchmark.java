@@ -0,0 +1,62 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.entity.Category;
+import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to {@link ProductResponse} mapping as done on the create, batch and update paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+
+    private Product product;
+
+    private CategoryResponse categoryResponse;
+
+    @Setup
+    public void setUp() {
+        Category category = new Category();
+        category.setId(7);
+        category.setName("Category A");
+
+        product = new Product();
+        product.setId(42);
+        product.setCode("P00042");
+        product.setName("Product A");
+        product.setPrice(1000.0);
+        product.setCategory(category);
+
+        categoryResponse = CategoryResponse.builder().id(category.getId()).name(category.getName()).build();
+    }
+
+    @Benchmark
+    public ProductResponse toResponse() {
+        return ProductService.toResponse(product, categoryResponse);
+    }
+
+    @Benchmark
+    public ProductResponse toResponseWithCategoryMapping() {
+        Category category = product.getCategory();
+        return ProductService.toResponse(product, CategoryResponse.builder().id(category.getId()).name(category.getName()).build());
+    }
+
+}
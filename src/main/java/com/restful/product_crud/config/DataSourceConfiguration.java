@@ -0,0 +1,38 @@
+package com.restful.product_crud.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the connection pool so every JDBC statement, whether it comes from Hibernate or {@code JdbcTemplate}, goes
+ * through {@link SlowQueryListener}. A negative {@code product.sql.slow-query-threshold} leaves the pool unwrapped.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourceConfiguration {
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(Environment environment) {
+        Duration threshold = environment.getProperty("product.sql.slow-query-threshold", Duration.class, Duration.ofMillis(500));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || threshold.isNegative()) {
+                    return bean;
+                }
+
+                return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(new SlowQueryListener(threshold.toMillis()))
+                        .connectionIdManager(new UntrackedConnectionIdManager())
+                        .build();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.restful.product_crud.config;
+
+import com.restful.product_crud.model.HibernateStatisticsResponse;
+import com.restful.product_crud.model.QueryStatisticsResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code /actuator/hibernate}: Hibernate's session factory statistics since startup or the last reset, with the
+ * queries that took the most time in total. {@code DELETE} resets the counters, eg. before a load test.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private static final int TOP_QUERIES = 20;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public HibernateStatisticsResponse statistics() {
+        Statistics statistics = sessionStatistics();
+        List<QueryStatisticsResponse> queries = Arrays.stream(statistics.getQueries())
+                .map(query -> toResponse(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong(QueryStatisticsResponse::getExecutionTotalTime).reversed())
+                .limit(TOP_QUERIES)
+                .toList();
+
+        return HibernateStatisticsResponse.builder()
+                .enabled(statistics.isStatisticsEnabled())
+                .since(statistics.getStart())
+                .sessionOpenCount(statistics.getSessionOpenCount())
+                .transactionCount(statistics.getTransactionCount())
+                .flushCount(statistics.getFlushCount())
+                .prepareStatementCount(statistics.getPrepareStatementCount())
+                .queryExecutionCount(statistics.getQueryExecutionCount())
+                .queryExecutionMaxTime(statistics.getQueryExecutionMaxTime())
+                .slowestQuery(statistics.getQueryExecutionMaxTimeQueryString())
+                .queryPlanCacheHitCount(statistics.getQueryPlanCacheHitCount())
+                .queryPlanCacheMissCount(statistics.getQueryPlanCacheMissCount())
+                .entityLoadCount(statistics.getEntityLoadCount())
+                .entityFetchCount(statistics.getEntityFetchCount())
+                .entityInsertCount(statistics.getEntityInsertCount())
+                .entityUpdateCount(statistics.getEntityUpdateCount())
+                .entityDeleteCount(statistics.getEntityDeleteCount())
+                .collectionLoadCount(statistics.getCollectionLoadCount())
+                .collectionFetchCount(statistics.getCollectionFetchCount())
+                .secondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount())
+                .secondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount())
+                .queryCacheHitCount(statistics.getQueryCacheHitCount())
+                .queryCacheMissCount(statistics.getQueryCacheMissCount())
+                .optimisticFailureCount(statistics.getOptimisticFailureCount())
+                .queries(queries)
+                .build();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sessionStatistics().clear();
+    }
+
+    private Statistics sessionStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static QueryStatisticsResponse toResponse(String query, QueryStatistics statistics) {
+        return QueryStatisticsResponse.builder()
+                .query(query)
+                .executionCount(statistics.getExecutionCount())
+                .executionRowCount(statistics.getExecutionRowCount())
+                .executionTotalTime(statistics.getExecutionTotalTime())
+                .executionAvgTime(statistics.getExecutionAvgTimeAsDouble())
+                .executionMaxTime(statistics.getExecutionMaxTime())
+                .build();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.restful.product_crud.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables {@link io.micrometer.core.annotation.Timed} on beans. Services annotated at class level get one timer per
+ * public method, tagged with the class and method name.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    public static final String SERVICE_TIMER = "app.service.calls";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+}
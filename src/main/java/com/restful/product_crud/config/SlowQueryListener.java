@@ -0,0 +1,75 @@
+package com.restful.product_crud.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Logs statements that took at least the configured threshold, with their bind parameter count and the application
+ * method that issued them. Nothing is formatted and the stack is not walked for statements under the threshold.
+ */
+public class SlowQueryListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryListener.class);
+
+    private static final String APPLICATION_PACKAGE = "com.restful.product_crud.";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final long thresholdMillis;
+
+    public SlowQueryListener(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        if (execution.getElapsedTime() < thresholdMillis || !log.isWarnEnabled()) {
+            return;
+        }
+
+        int parameters = 0;
+        for (QueryInfo query : queries) {
+            for (List<ParameterSetOperation> parameterSet : query.getParametersList()) {
+                parameters += parameterSet.size();
+            }
+        }
+
+        String sql = queries.size() == 1 ? queries.get(0).getQuery()
+                : String.join("; ", queries.stream().map(QueryInfo::getQuery).toList());
+        log.warn("Slow query: {} ms, {} bind parameters{}, {}, from {}: {}",
+                execution.getElapsedTime(),
+                parameters,
+                execution.isBatch() ? ", batch of " + execution.getBatchSize() : "",
+                execution.isSuccess() ? "succeeded" : "failed",
+                caller(),
+                sql);
+    }
+
+    /**
+     * The innermost application frame outside the repositories and this package, usually the service method.
+     */
+    static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> {
+                    String className = frame.getClassName();
+                    return className.startsWith(APPLICATION_PACKAGE)
+                            && !className.startsWith(APPLICATION_PACKAGE + "config.")
+                            && !className.startsWith(APPLICATION_PACKAGE + "repository.")
+                            && !className.contains("$$");
+                })
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.restful.product_crud.config;
+
+import net.ttddyy.dsproxy.ConnectionIdManager;
+
+import java.sql.Connection;
+import java.util.Set;
+
+/**
+ * Connection id manager for datasource-proxy that hands out no ids and tracks nothing. The default one keeps the
+ * open ids in a set guarded by {@code synchronized}, which every connection borrow and return goes through: a point
+ * of contention for all request threads, and a carrier pin for virtual threads. None of our listeners use the ids.
+ */
+public class UntrackedConnectionIdManager implements ConnectionIdManager {
+
+    @Override
+    public String getId(Connection connection) {
+        return "";
+    }
+
+    @Override
+    public void addClosedId(String connectionId) {
+    }
+
+    @Override
+    public Set<String> getOpenConnectionIds() {
+        return Set.of();
+    }
+
+}
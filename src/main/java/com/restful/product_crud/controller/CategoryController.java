@@ -1,54 +1,102 @@
 package com.restful.product_crud.controller;
 
 import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CategoryStatsResponse;
 import com.restful.product_crud.model.CreateCategoryRequest;
 import com.restful.product_crud.model.UpdateCategoryRequest;
 import com.restful.product_crud.model.WebResponse;
+import com.restful.product_crud.service.CatalogVersion;
 import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.IdempotencyStore;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
+import static com.restful.product_crud.config.BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE;
+
 @RestController
+@Profile("!reactive")
 public class CategoryController {
 
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private SerializedResponseCache serializedResponseCache;
+
+    @Autowired
+    private ResponseFormats responseFormats;
+
     @GetMapping(
             path = "/categories",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public ResponseEntity<byte[]> list(WebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        return serializedResponseCache.respond("categories", catalogVersion.categories(), webRequest, () -> {
+            List<CategoryResponse> categoryResponses = categoryService.list();
+            WebResponse<List<CategoryResponse>> body = WebResponse.<List<CategoryResponse>>builder().status("success").data(categoryResponses).build();
+            return new SerializedResponseCache.Rendered(body, ETags.ofCategories(categoryResponses));
+        });
+    }
+
+    @GetMapping(
+            path = "/categories/stats",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<List<CategoryResponse>> list() {
-        List<CategoryResponse> categoryResponses = categoryService.list();
-        return WebResponse.<List<CategoryResponse>>builder().status("success").data(categoryResponses).build();
+    public WebResponse<List<CategoryStatsResponse>> stats() {
+        List<CategoryStatsResponse> categoryStatsResponses = categoryService.stats();
+        return WebResponse.<List<CategoryStatsResponse>>builder().status("success").data(categoryStatsResponses).build();
     }
 
     @PostMapping(
             path = "/categories",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<CategoryResponse> create(@RequestBody CreateCategoryRequest request) {
-        CategoryResponse categoryResponse = categoryService.create(request);
+    public WebResponse<CategoryResponse> create(@RequestBody CreateCategoryRequest request,
+                                                @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        CategoryResponse categoryResponse = idempotencyKey == null
+                ? categoryService.create(request)
+                : idempotencyStore.execute("categories", idempotencyKey, request, CategoryResponse.class, () -> categoryService.create(request));
         return WebResponse.<CategoryResponse>builder().status("success").data(categoryResponse).build();
     }
 
     @GetMapping(
             path = "/categories/{id}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<CategoryResponse> find(@PathVariable("id") int id) {
+    public ResponseEntity<WebResponse<CategoryResponse>> find(@PathVariable("id") int id, WebRequest webRequest,
+                                                             HttpServletResponse response) throws HttpMediaTypeNotAcceptableException {
+        ResponseFormats.Format format = responseFormats.negotiate(webRequest);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
         CategoryResponse categoryResponse = categoryService.find(id);
-        return WebResponse.<CategoryResponse>builder().status("success").data(categoryResponse).build();
+        if (webRequest.checkNotModified(format.tag(ETags.of(categoryResponse)))) {
+            return null;
+        }
+
+        return ResponseEntity.ok().contentType(format.mediaType)
+                .body(WebResponse.<CategoryResponse>builder().status("success").data(categoryResponse).build());
     }
 
     @PutMapping(
             path = "/categories/{id}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
     public WebResponse<CategoryResponse> update(@PathVariable("id") int id, @RequestBody UpdateCategoryRequest request) {
         CategoryResponse categoryResponse = categoryService.update(id, request);
@@ -57,10 +105,12 @@ public class CategoryController {
 
     @DeleteMapping(
             path = "/categories/{id}",
-            produces = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<String> delete(@PathVariable("id") int id) {
-        categoryService.delete(id);
+    public WebResponse<String> delete(@PathVariable("id") int id,
+                                      @RequestParam(name = "mode", defaultValue = CategoryService.DELETE_RESTRICT) String mode,
+                                      @RequestParam(name = "reassignTo", required = false) Integer reassignTo) {
+        categoryService.delete(id, mode, reassignTo);
         return WebResponse.<String>builder().status("success").build();
     }
 }
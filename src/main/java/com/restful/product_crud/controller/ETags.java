@@ -0,0 +1,78 @@
+package com.restful.product_crud.controller;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.ProductResponse;
+
+import java.util.List;
+
+/**
+ * Builds strong entity tags from row ids and versions, so a conditional GET can be answered without
+ * serializing or hashing the response body.
+ */
+final class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    static String of(ProductResponse product) {
+        String tag = "p" + product.getId() + "." + product.getVersion();
+        CategoryResponse category = product.getCategory();
+        if (category != null) {
+            // The response embeds the category name, so renaming the category has to change the tag as well.
+            tag += "-c" + category.getId() + "." + category.getVersion();
+        }
+        return "\"" + tag + "\"";
+    }
+
+    static String of(CategoryResponse category) {
+        return "\"c" + category.getId() + "." + category.getVersion() + "\"";
+    }
+
+    static String ofProducts(List<ProductResponse> products, String nextCursor) {
+        long hash = FNV_OFFSET;
+        for (ProductResponse product : products) {
+            hash = mix(hash, product.getId());
+            hash = mix(hash, product.getVersion());
+            if (product.getCategory() != null) {
+                hash = mix(hash, product.getCategory().getId());
+                hash = mix(hash, product.getCategory().getVersion());
+            } else {
+                hash = mix(hash, -1);
+            }
+        }
+        if (nextCursor != null) {
+            hash = mix(hash, nextCursor.hashCode());
+        }
+        return "\"pl" + products.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    static String ofCategories(List<CategoryResponse> categories) {
+        long hash = FNV_OFFSET;
+        for (CategoryResponse category : categories) {
+            hash = mix(hash, category.getId());
+            hash = mix(hash, category.getVersion());
+        }
+        return "\"cl" + categories.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * The entity tag of one representation format, eg. {@code "p1.0"} becomes {@code "p1.0-cbor"}. The same resource
+     * has different bytes in each format, and a strong tag must not match across them.
+     */
+    static String inFormat(String etag, String format) {
+        return etag.substring(0, etag.length() - 1) + "-" + format + "\"";
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
@@ -1,55 +1,211 @@
 package com.restful.product_crud.controller;
 
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.BulkResultResponse;
+import com.restful.product_crud.model.BulkUpdateProductRequest;
+import com.restful.product_crud.model.CacheStatsResponse;
 import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.CursorPage;
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.model.PatchProductRequest;
+import com.restful.product_crud.model.ProductChangesResponse;
 import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.QueuedProductResponse;
 import com.restful.product_crud.model.UpdateProductRequest;
 import com.restful.product_crud.model.WebResponse;
+import com.restful.product_crud.service.CatalogVersion;
+import com.restful.product_crud.service.IdempotencyStore;
+import com.restful.product_crud.service.ProductCache;
 import com.restful.product_crud.service.ProductService;
+import com.restful.product_crud.service.ProductWriteQueue;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
+import static com.restful.product_crud.config.BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE;
+
 @RestController
+@Profile("!reactive")
 public class ProductController {
 
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductWriteQueue productWriteQueue;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private SerializedResponseCache serializedResponseCache;
+
+    @Autowired
+    private ResponseFormats responseFormats;
+
     @GetMapping(
-            path = "/products"
+            path = "/products",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<List<ProductResponse>> list() {
-        List<ProductResponse> productResponses = productService.list();
+    public ResponseEntity<byte[]> list(@RequestParam(name = "limit", defaultValue = "100") int limit,
+                                       @RequestParam(name = "after", required = false) String after,
+                                       @RequestParam(name = "categoryId", required = false) Integer categoryId,
+                                       @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                       @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                                       @RequestParam(name = "sort", required = false) String sort,
+                                       WebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        ListProductRequest request = ListProductRequest.builder()
+                .limit(limit)
+                .after(after)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sort(sort)
+                .build();
+        // Only first pages are cached. Later pages are mostly fetched once by a client walking the whole list, and
+        // caching them would evict the first pages everyone reads.
+        String key = after != null ? null : "products?limit=" + limit + "&categoryId=" + categoryId
+                + "&minPrice=" + minPrice + "&maxPrice=" + maxPrice + "&sort=" + sort;
+        return serializedResponseCache.respond(key, catalogVersion.products(), webRequest, () -> {
+            CursorPage<ProductResponse> page = productService.list(request);
+            WebResponse<List<ProductResponse>> body = WebResponse.<List<ProductResponse>>builder()
+                    .status("success").data(page.getItems()).nextCursor(page.getNextCursor()).build();
+            return new SerializedResponseCache.Rendered(body, ETags.ofProducts(page.getItems(), page.getNextCursor()));
+        });
+    }
+
+    @GetMapping(
+            path = "/products/export",
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        productService.export(response.getOutputStream());
+    }
+
+    @GetMapping(
+            path = "/products/changes",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<ProductChangesResponse> changes(@RequestParam(name = "since", defaultValue = "0") long since,
+                                                       @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        ProductChangesResponse productChangesResponse = productService.changes(since, limit);
+        return WebResponse.<ProductChangesResponse>builder().status("success").data(productChangesResponse).build();
+    }
+
+    @GetMapping(
+            path = "/products/search",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<List<ProductResponse>> search(@RequestParam(name = "q", required = false) String query,
+                                                     @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        List<ProductResponse> productResponses = productService.search(query, limit);
         return WebResponse.<List<ProductResponse>>builder()
                 .status("success").data(productResponses).build();
     }
 
     @PostMapping(
             path = "/products",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
-    public WebResponse<ProductResponse> create(@RequestBody CreateProductRequest request) {
-        ProductResponse productResponse = productService.create(request);
+    public WebResponse<ProductResponse> create(@RequestBody CreateProductRequest request,
+                                               @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        ProductResponse productResponse = idempotencyKey == null
+                ? productService.create(request)
+                : idempotencyStore.execute("products", idempotencyKey, request, ProductResponse.class, () -> productService.create(request));
         return WebResponse.<ProductResponse>builder()
                 .status("success").data(productResponse).build();
     }
 
+    /**
+     * Validates the product and assigns its code, then queues the insert and answers 202 straight away. The
+     * Location header points at the status of the queued product.
+     */
+    @PostMapping(
+            path = "/products",
+            headers = "Prefer=respond-async",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public ResponseEntity<WebResponse<QueuedProductResponse>> createAsync(@RequestBody CreateProductRequest request) {
+        QueuedProductResponse queuedProductResponse = productWriteQueue.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/products/queue/" + queuedProductResponse.getCode()))
+                .header("Preference-Applied", "respond-async")
+                .body(WebResponse.<QueuedProductResponse>builder()
+                        .status("success").data(queuedProductResponse).build());
+    }
+
+    @GetMapping(
+            path = "/products/queue/{code}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<QueuedProductResponse> queued(@PathVariable("code") String code) {
+        QueuedProductResponse queuedProductResponse = productWriteQueue.find(code);
+        return WebResponse.<QueuedProductResponse>builder()
+                .status("success").data(queuedProductResponse).build();
+    }
+
+    @GetMapping(
+            path = "/products/cache/stats",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<CacheStatsResponse> cacheStats() {
+        return WebResponse.<CacheStatsResponse>builder()
+                .status("success").data(productCache.stats()).build();
+    }
+
+    @PostMapping(
+            path = "/products/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<List<BatchItemResponse<ProductResponse>>> createBatch(@RequestBody List<CreateProductRequest> requests) {
+        List<BatchItemResponse<ProductResponse>> results = productService.createBatch(requests);
+        long created = results.stream().filter(result -> "success".equals(result.getStatus())).count();
+        return WebResponse.<List<BatchItemResponse<ProductResponse>>>builder()
+                .status("success").message(created + " of " + results.size() + " products created.").data(results).build();
+    }
+
     @GetMapping(
             path = "/products/{id}"
     )
-    public WebResponse<ProductResponse> find(@PathVariable("id") int id) {
+    public ResponseEntity<WebResponse<ProductResponse>> find(@PathVariable("id") int id, WebRequest webRequest,
+                                                           HttpServletResponse response) throws HttpMediaTypeNotAcceptableException {
+        // The format is picked here rather than by the message converters, because the entity tag depends on it.
+        ResponseFormats.Format format = responseFormats.negotiate(webRequest);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
         ProductResponse productResponse = productService.find(id);
-        return WebResponse.<ProductResponse>builder()
-                .status("success").data(productResponse).build();
+        if (webRequest.checkNotModified(format.tag(ETags.of(productResponse)))) {
+            return null;
+        }
+
+        return ResponseEntity.ok().contentType(format.mediaType).body(WebResponse.<ProductResponse>builder()
+                .status("success").data(productResponse).build());
     }
 
     @PutMapping(
             path = "/products/{id}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
     public WebResponse<ProductResponse> update(@PathVariable("id") int id, @RequestBody UpdateProductRequest request) {
         ProductResponse productResponse = productService.update(id, request);
@@ -57,10 +213,53 @@ public class ProductController {
                 .status("success").data(productResponse).build();
     }
 
+    /**
+     * With {@code Prefer: return=minimal} the product is not read back and the answer is 204, so the whole request
+     * is one {@code UPDATE}.
+     */
+    @PatchMapping(
+            path = "/products/{id}",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public ResponseEntity<WebResponse<ProductResponse>> patch(@PathVariable("id") int id, @RequestBody PatchProductRequest request,
+                                                              @RequestHeader(name = "Prefer", required = false) String prefer) {
+        productService.patch(id, request);
+        if (prefer != null && prefer.contains("return=minimal")) {
+            return ResponseEntity.noContent().header("Preference-Applied", "return=minimal").build();
+        }
+
+        ProductResponse productResponse = productService.find(id);
+        return ResponseEntity.ok(WebResponse.<ProductResponse>builder()
+                .status("success").data(productResponse).build());
+    }
+
+    @PutMapping(
+            path = "/products/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<BulkResultResponse> bulkUpdate(@RequestBody BulkUpdateProductRequest request) {
+        int affected = productService.bulkUpdate(request);
+        return WebResponse.<BulkResultResponse>builder()
+                .status("success").data(BulkResultResponse.builder().affected(affected).build()).build();
+    }
+
+    @DeleteMapping(
+            path = "/products",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
+    )
+    public WebResponse<BulkResultResponse> bulkDelete(@RequestParam(name = "ids", required = false) List<Integer> ids,
+                                                      @RequestParam(name = "categoryId", required = false) Integer categoryId) {
+        int affected = productService.bulkDelete(ids, categoryId);
+        return WebResponse.<BulkResultResponse>builder()
+                .status("success").data(BulkResultResponse.builder().affected(affected).build()).build();
+    }
+
     @DeleteMapping(
             path = "/products/{id}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE}
     )
     public WebResponse<String> delete(@PathVariable("id") int id) {
         productService.delete(id);
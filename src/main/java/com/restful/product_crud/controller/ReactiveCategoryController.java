@@ -0,0 +1,39 @@
+package com.restful.product_crud.controller;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.WebResponse;
+import com.restful.product_crud.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * WebFlux counterpart of {@code GET /categories} in {@link CategoryController}, active with the {@code reactive}
+ * profile.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveCategoryController {
+
+    // Tagged like the servlet responses, which serve the same JSON.
+    private static final String FORMAT = ResponseFormats.key(MediaType.APPLICATION_JSON);
+
+    @Autowired
+    private ReactiveProductService reactiveProductService;
+
+    @GetMapping(
+            path = "/categories",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<WebResponse<List<CategoryResponse>>> list(ServerWebExchange exchange) {
+        return reactiveProductService.listCategories()
+                .filter(categoryResponses -> !exchange.checkNotModified(ETags.inFormat(ETags.ofCategories(categoryResponses), FORMAT)))
+                .map(categoryResponses -> WebResponse.<List<CategoryResponse>>builder().status("success").data(categoryResponses).build());
+    }
+}
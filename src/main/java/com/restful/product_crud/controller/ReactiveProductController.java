@@ -0,0 +1,89 @@
+package com.restful.product_crud.controller;
+
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.WebResponse;
+import com.restful.product_crud.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * WebFlux counterpart of the read endpoints in {@link ProductController}, active with the {@code reactive} profile
+ * in place of the servlet controllers.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveProductController {
+
+    // Tagged like the servlet responses, which serve the same JSON.
+    private static final String FORMAT = ResponseFormats.key(MediaType.APPLICATION_JSON);
+
+    @Autowired
+    private ReactiveProductService reactiveProductService;
+
+    @GetMapping(
+            path = "/products",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<WebResponse<List<ProductResponse>>> list(@RequestParam(name = "limit", defaultValue = "100") int limit,
+                                                         @RequestParam(name = "after", required = false) String after,
+                                                         @RequestParam(name = "categoryId", required = false) Integer categoryId,
+                                                         @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                                         @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                                                         @RequestParam(name = "sort", required = false) String sort,
+                                                         ServerWebExchange exchange) {
+        ListProductRequest request = ListProductRequest.builder()
+                .limit(limit)
+                .after(after)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sort(sort)
+                .build();
+        return reactiveProductService.list(request)
+                .filter(page -> !exchange.checkNotModified(ETags.inFormat(ETags.ofProducts(page.getItems(), page.getNextCursor()), FORMAT)))
+                .map(page -> WebResponse.<List<ProductResponse>>builder()
+                        .status("success").data(page.getItems()).nextCursor(page.getNextCursor()).build());
+    }
+
+    /**
+     * Streams every matching product as newline delimited JSON when the client asks for {@code application/x-ndjson}.
+     * Takes the same filter, sort and cursor as the paged listing but no limit, and rows are only read from the
+     * database as fast as the client consumes them.
+     */
+    @GetMapping(
+            path = "/products",
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public Flux<ProductResponse> stream(@RequestParam(name = "after", required = false) String after,
+                                        @RequestParam(name = "categoryId", required = false) Integer categoryId,
+                                        @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                        @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                                        @RequestParam(name = "sort", required = false) String sort) {
+        ListProductRequest request = ListProductRequest.builder()
+                .after(after)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sort(sort)
+                .build();
+        return reactiveProductService.stream(request);
+    }
+
+    @GetMapping(
+            path = "/products/{id}"
+    )
+    public Mono<WebResponse<ProductResponse>> find(@PathVariable("id") int id, ServerWebExchange exchange) {
+        return reactiveProductService.find(id)
+                .filter(productResponse -> !exchange.checkNotModified(ETags.inFormat(ETags.of(productResponse), FORMAT)))
+                .map(productResponse -> WebResponse.<ProductResponse>builder()
+                        .status("success").data(productResponse).build());
+    }
+}
@@ -0,0 +1,108 @@
+package com.restful.product_crud.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.restful.product_crud.config.BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE;
+
+/**
+ * Picks JSON, CBOR or Smile from the {@code Accept} header for responses whose entity tag is decided before the
+ * body is written. The tag gets the format appended, since the same resource has different bytes in each format
+ * and a strong tag must not match across them.
+ */
+@Component
+class ResponseFormats {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
+    // In order of preference when the Accept header allows several.
+    private List<Format> formats;
+
+    @PostConstruct
+    void init() {
+        formats = List.of(
+                new Format(MediaType.APPLICATION_JSON, objectMapper),
+                new Format(MediaType.APPLICATION_CBOR, cborHttpMessageConverter.getObjectMapper()),
+                new Format(MediaType.parseMediaType(APPLICATION_SMILE_VALUE), smileHttpMessageConverter.getObjectMapper()));
+    }
+
+    Format negotiate(WebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        String[] accept = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return formats.get(0);
+        }
+
+        List<MediaType> acceptable = new ArrayList<>();
+        try {
+            for (String header : accept) {
+                acceptable.addAll(MediaType.parseMediaTypes(header));
+            }
+        } catch (InvalidMimeTypeException e) {
+            throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+        }
+        MimeTypeUtils.sortBySpecificity(acceptable);
+
+        for (MediaType mediaType : acceptable) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (Format format : formats) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(formats.stream().map(format -> format.mediaType).toList());
+    }
+
+    static final class Format {
+
+        final MediaType mediaType;
+
+        final ObjectMapper objectMapper;
+
+        Format(MediaType mediaType, ObjectMapper objectMapper) {
+            this.mediaType = mediaType;
+            this.objectMapper = objectMapper;
+        }
+
+        /**
+         * The entity tag for this format, see {@link ETags#inFormat}.
+         */
+        String tag(String etag) {
+            return ETags.inFormat(etag, key());
+        }
+
+        String key() {
+            return ResponseFormats.key(mediaType);
+        }
+    }
+
+    /**
+     * Short name of a format, for cache keys and entity tags, eg. {@code json} or {@code smile}.
+     */
+    static String key(MediaType mediaType) {
+        return mediaType.getSubtype().substring(mediaType.getSubtype().lastIndexOf('-') + 1);
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.restful.product_crud.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restful.product_crud.controller.ResponseFormats.Format;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Whole list responses, kept serialized and, above a minimum size, gzip-compressed as well, so a repeated
+ * {@code GET /products} or {@code GET /categories} is answered without querying, serializing or compressing. JSON,
+ * CBOR and Smile are cached separately, whichever the {@code Accept} header prefers.
+ * <p>
+ * Each entry remembers the catalog version it was built at and is rebuilt on the first request after the version
+ * moves on. The version is read before the response is built, so an entry can only be older than its version,
+ * never newer. Versions are per node and only see writes made through this node's services, so entries also expire
+ * after a while to pick up writes made elsewhere.
+ * <p>
+ * Responses carry {@code Vary: Accept, Accept-Encoding} and an entity tag per format, since both headers change
+ * the bytes sent.
+ */
+@Component
+class SerializedResponseCache {
+
+    @Autowired
+    private ResponseFormats responseFormats;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.response-cache.maximum-size:64MB}")
+    private DataSize maximumSize;
+
+    @Value("${product.response-cache.expire-after-write:1m}")
+    private Duration expireAfterWrite;
+
+    @Value("${product.response-cache.min-gzip-size:1KB}")
+    private DataSize minGzipSize;
+
+    private Cache<String, SerializedResponse> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String key, SerializedResponse response) -> response.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "responses");
+    }
+
+    /**
+     * Answers the request from the entry for {@code key} if it was built at {@code version}, otherwise builds the
+     * entry from {@code loader} first. A {@code null} key builds the response without caching it, for requests
+     * that are rarely repeated. Returns {@code null} when the request's {@code If-None-Match} still matches.
+     */
+    ResponseEntity<byte[]> respond(String key, String version, WebRequest webRequest, Supplier<Rendered> loader)
+            throws HttpMediaTypeNotAcceptableException {
+        Format format = responseFormats.negotiate(webRequest);
+        String formatKey = key != null ? key + "|" + format.key() : null;
+
+        SerializedResponse response = formatKey != null ? cache.getIfPresent(formatKey) : null;
+        if (response == null || !response.version.equals(version)) {
+            // Concurrent misses each build their own copy. Building outside the cache's compute lock keeps the
+            // query from running while holding a monitor.
+            response = serialize(version, format, loader.get());
+            if (formatKey != null) {
+                cache.put(formatKey, response);
+            }
+        }
+
+        // The gzip body is a different byte sequence, so it gets its own strong tag.
+        boolean gzip = response.gzip != null && acceptsGzip(webRequest.getHeaderValues(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? response.etag.substring(0, response.etag.length() - 1) + "-gz\"" : response.etag;
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(format.mediaType)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip);
+        }
+        return builder.body(response.identity);
+    }
+
+    private SerializedResponse serialize(String version, Format format, Rendered rendered) {
+        byte[] identity;
+        try {
+            identity = format.objectMapper.writeValueAsBytes(rendered.body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] gzip = identity.length >= minGzipSize.toBytes() ? gzip(identity) : null;
+        return new SerializedResponse(version, format.tag(rendered.etag), identity, gzip);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * True unless gzip is missing from {@code Accept-Encoding} or listed with {@code q=0}.
+     */
+    static boolean acceptsGzip(String[] acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                    continue;
+                }
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    if (parameter.matches("[qQ]=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A response body and its entity tag, as built by the controller on a miss.
+     */
+    static final class Rendered {
+
+        final Object body;
+
+        final String etag;
+
+        Rendered(Object body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    private static final class SerializedResponse {
+
+        final String version;
+
+        final String etag;
+
+        final byte[] identity;
+
+        final byte[] gzip;
+
+        SerializedResponse(String version, String etag, byte[] identity, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        int weight() {
+            return identity.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+}
@@ -22,6 +22,9 @@ public class Category {
 
     private String name;
 
+    @Version
+    private long version;
+
     @OneToMany(mappedBy = "category")
     private List<Product> products;
 
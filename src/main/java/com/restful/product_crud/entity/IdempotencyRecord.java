@@ -0,0 +1,72 @@
+package com.restful.product_crud.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Response stored for an {@code Idempotency-Key}, shared by every node when
+ * {@code product.idempotency.database-enabled} is set. {@code response} stays null while the original request is
+ * still running.
+ * <p>
+ * The id is assigned by the caller, so the entity reports itself as new until it has been persisted or loaded. That
+ * makes {@code save} an insert which fails on a duplicate key, instead of a merge that would overwrite the claim of
+ * another node.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key", length = 300)
+    private String key;
+
+    @Column(length = 64)
+    private String fingerprint;
+
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Transient
+    private boolean persisted;
+
+    public IdempotencyRecord(String key, String fingerprint, Instant createdAt) {
+        this.key = key;
+        this.fingerprint = fingerprint;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
+}
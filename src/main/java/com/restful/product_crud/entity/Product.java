@@ -11,7 +11,18 @@ import lombok.Setter;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(
+        name = "products",
+        uniqueConstraints = @UniqueConstraint(name = "uk_products_code", columnNames = "code"),
+        indexes = {
+                @Index(name = "idx_products_category", columnList = "category_id"),
+                @Index(name = "idx_products_category_price", columnList = "category_id, price"),
+                @Index(name = "idx_products_category_name", columnList = "category_id, name"),
+                @Index(name = "idx_products_price", columnList = "price"),
+                @Index(name = "idx_products_name", columnList = "name"),
+                @Index(name = "idx_products_change_version", columnList = "change_version")
+        }
+)
 public class Product {
 
     @Id
@@ -22,8 +33,15 @@ public class Product {
 
     private String name;
 
+    @Version
+    private long version;
+
     private Double price;
 
+    // Set from ProductChangeLog on every write, unlike the optimistic lock version above.
+    @Column(name = "change_version")
+    private long changeVersion;
+
     @ManyToOne
     @JoinColumn(name = "category_id", nullable = true)
     private Category category;
@@ -0,0 +1,44 @@
+package com.restful.product_crud.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A deleted product, kept so {@code GET /products/changes} can report the delete. Purged after
+ * {@code product.changes.tombstone-retention}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "product_tombstones", indexes = @Index(name = "idx_product_tombstones_change_version", columnList = "change_version"))
+public class ProductTombstone {
+
+    @Id
+    @Column(name = "product_id")
+    private int productId;
+
+    @Column(length = 50)
+    private String code;
+
+    // Where the product was counted, so the category stats can be recounted after the row is gone.
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "change_version")
+    private long changeVersion;
+
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+}
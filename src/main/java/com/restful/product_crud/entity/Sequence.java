@@ -0,0 +1,26 @@
+package com.restful.product_crud.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "sequences")
+public class Sequence {
+
+    @Id
+    private String name;
+
+    @Column(name = "next_value")
+    private long nextValue;
+
+}
@@ -0,0 +1,22 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchItemResponse<T> {
+
+    private int index;
+
+    private String status;
+
+    private String message;
+
+    private T data;
+
+}
@@ -0,0 +1,16 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkResultResponse {
+
+    private int affected;
+
+}
@@ -0,0 +1,24 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkUpdateProductRequest {
+
+    private List<Integer> ids;
+
+    private Integer filterCategoryID;
+
+    private Double price;
+
+    private Integer categoryID;
+
+}
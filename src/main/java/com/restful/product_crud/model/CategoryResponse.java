@@ -1,5 +1,6 @@
 package com.restful.product_crud.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,7 @@ public class CategoryResponse {
 
     private String name;
 
+    @JsonIgnore
+    private long version;
+
 }
@@ -0,0 +1,47 @@
+package com.restful.product_crud.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CategoryStatsResponse {
+
+    private int categoryId;
+
+    private String categoryName;
+
+    private long productCount;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    private Double averagePrice;
+
+    @JsonIgnore
+    private long pricedCount;
+
+    @JsonIgnore
+    private double priceSum;
+
+    /**
+     * Constructor used by the {@code GROUP BY} projection that reconciles the incremental counters.
+     */
+    public CategoryStatsResponse(Integer categoryId, Long productCount, Long pricedCount, Double priceSum,
+                                 Double minPrice, Double maxPrice) {
+        this.categoryId = categoryId;
+        this.productCount = productCount;
+        this.pricedCount = pricedCount;
+        this.priceSum = priceSum != null ? priceSum : 0;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.averagePrice = pricedCount > 0 ? this.priceSum / pricedCount : null;
+    }
+
+}
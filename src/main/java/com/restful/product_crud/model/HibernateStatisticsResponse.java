@@ -0,0 +1,65 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class HibernateStatisticsResponse {
+
+    private boolean enabled;
+
+    private Instant since;
+
+    private long sessionOpenCount;
+
+    private long transactionCount;
+
+    private long flushCount;
+
+    private long prepareStatementCount;
+
+    private long queryExecutionCount;
+
+    private long queryExecutionMaxTime;
+
+    private String slowestQuery;
+
+    private long queryPlanCacheHitCount;
+
+    private long queryPlanCacheMissCount;
+
+    private long entityLoadCount;
+
+    private long entityFetchCount;
+
+    private long entityInsertCount;
+
+    private long entityUpdateCount;
+
+    private long entityDeleteCount;
+
+    private long collectionLoadCount;
+
+    private long collectionFetchCount;
+
+    private long secondLevelCacheHitCount;
+
+    private long secondLevelCacheMissCount;
+
+    private long queryCacheHitCount;
+
+    private long queryCacheMissCount;
+
+    private long optimisticFailureCount;
+
+    private List<QueryStatisticsResponse> queries;
+
+}
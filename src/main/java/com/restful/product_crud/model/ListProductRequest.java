@@ -0,0 +1,27 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ListProductRequest {
+
+    @Builder.Default
+    private int limit = 100;
+
+    private String after;
+
+    private Integer categoryId;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    private String sort;
+
+}
@@ -0,0 +1,30 @@
+package com.restful.product_crud.model;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fields to change with {@code PATCH /products/{id}}. Fields left null keep their current value.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PatchProductRequest {
+
+    @Size(max = 100, message = "Code too long. Maximum 100 characters.")
+    private String code;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "Name cannot be empty.")
+    @Size(max = 200, message = "Name too long. Maximum 200 characters.")
+    private String name;
+
+    private Double price;
+
+    private Integer categoryID;
+
+}
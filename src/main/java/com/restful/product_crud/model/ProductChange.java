@@ -0,0 +1,24 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Id and change version of a changed or deleted product, read from the change version indexes before the
+ * changed products themselves are loaded.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductChange {
+
+    private int id;
+
+    private long changeVersion;
+
+    private boolean deleted;
+
+}
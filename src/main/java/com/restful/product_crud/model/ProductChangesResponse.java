@@ -0,0 +1,24 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductChangesResponse {
+
+    private List<ProductResponse> changed;
+
+    private List<Integer> deleted;
+
+    private long version;
+
+    private boolean hasMore;
+
+}
@@ -0,0 +1,33 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filter, sort order and keyset position of a page of products. {@code afterValue} is the sort column value
+ * of the last row of the previous page, unused for the id sort.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductFilter {
+
+    private Integer categoryId;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    @Builder.Default
+    private String sort = "id";
+
+    private boolean descending;
+
+    private Integer afterId;
+
+    private Object afterValue;
+
+}
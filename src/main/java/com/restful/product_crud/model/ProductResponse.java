@@ -1,5 +1,6 @@
 package com.restful.product_crud.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,4 +22,23 @@ public class ProductResponse {
 
     private CategoryResponse category;
 
+    @JsonIgnore
+    private long version;
+
+    /**
+     * Flat constructor used by JPQL constructor expressions, so a product and its category can be
+     * read in a single statement without hydrating entities.
+     */
+    public ProductResponse(int id, String code, String name, Double price, long version,
+                           Integer categoryId, String categoryName, Long categoryVersion) {
+        this.id = id;
+        this.code = code;
+        this.name = name;
+        this.price = price != null ? price : 0;
+        this.version = version;
+        if (categoryId != null) {
+            this.category = new CategoryResponse(categoryId, categoryName, categoryVersion);
+        }
+    }
+
 }
@@ -0,0 +1,26 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class QueryStatisticsResponse {
+
+    private String query;
+
+    private long executionCount;
+
+    private long executionRowCount;
+
+    private long executionTotalTime;
+
+    private double executionAvgTime;
+
+    private long executionMaxTime;
+
+}
@@ -0,0 +1,27 @@
+package com.restful.product_crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a product accepted by {@code POST /products} with {@code Prefer: respond-async}. {@code status} is
+ * {@code pending} until the write has been attempted, then {@code success} with the created product in
+ * {@code data}, or {@code failed} with the reason in {@code message}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class QueuedProductResponse {
+
+    private String code;
+
+    private String status;
+
+    private String message;
+
+    private ProductResponse data;
+
+}
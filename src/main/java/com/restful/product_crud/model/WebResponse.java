@@ -15,4 +15,6 @@ public class WebResponse <T> {
     private String message;
 
     private T data;
+
+    private String nextCursor;
 }
@@ -1,12 +1,27 @@
 package com.restful.product_crud.repository;
 
 import com.restful.product_crud.entity.Category;
+import com.restful.product_crud.model.CategoryResponse;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
+    @Query("select new com.restful.product_crud.model.CategoryResponse(c.id, c.name, c.version) from Category c order by c.id")
+    List<CategoryResponse> findAllResponses();
+
+    @Query("select new com.restful.product_crud.model.CategoryResponse(c.id, c.name, c.version) from Category c where c.id = :id")
+    Optional<CategoryResponse> findResponseById(@Param("id") int id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Category c where c.id = :id")
+    int deleteRow(@Param("id") int id);
+
     @Modifying
     @Transactional
     @Query(value = "TRUNCATE TABLE categories", nativeQuery = true)
@@ -0,0 +1,46 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.entity.IdempotencyRecord;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+
+    /**
+     * Takes over a claim whose request never stored a response, once it was made before {@code cutoff}.
+     *
+     * @return 1 if the claim now belongs to the caller, 0 if it was answered or claimed again in the meantime
+     */
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.fingerprint = :fingerprint, r.createdAt = :claimedAt " +
+            "where r.key = :key and r.response is null and r.createdAt < :cutoff")
+    int takeOver(@Param("key") String key, @Param("fingerprint") String fingerprint,
+                 @Param("claimedAt") Instant claimedAt, @Param("cutoff") Instant cutoff);
+
+    /**
+     * Stores the response of a claim, as long as the claim made at {@code claimedAt} was not taken over.
+     */
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.response = :response " +
+            "where r.key = :key and r.createdAt = :claimedAt and r.response is null")
+    int saveResponse(@Param("key") String key, @Param("claimedAt") Instant claimedAt, @Param("response") String response);
+
+    /**
+     * Releases a claim after its request failed, unless it was taken over in the meantime.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.key = :key and r.createdAt = :claimedAt and r.response is null")
+    int deleteClaim(@Param("key") String key, @Param("claimedAt") Instant claimedAt);
+}
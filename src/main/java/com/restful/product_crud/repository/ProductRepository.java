@@ -1,17 +1,100 @@
 package com.restful.product_crud.repository;
 
 import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.model.CategoryStatsResponse;
+import com.restful.product_crud.model.ProductChange;
+import com.restful.product_crud.model.ProductResponse;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductRepositoryCustom {
     boolean existsByCode(String code);
     boolean existsByCodeAndIdNot(String code, Integer id);
-    Optional<Product> findFirstByOrderByIdDesc();
+
+    @Query("select p.code from Product p where p.code in :codes")
+    List<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    @Query("select max(p.code) from Product p where p.code like concat(:prefix, '%') and length(p.code) = :length")
+    Optional<String> findMaxCode(@Param("prefix") String prefix, @Param("length") int length);
+
+    @Query("select new com.restful.product_crud.model.ProductResponse(p.id, p.code, p.name, p.price, p.version, c.id, c.name, c.version) " +
+            "from Product p left join p.category c where p.id = :id")
+    Optional<ProductResponse> findResponseById(@Param("id") int id);
+
+    @Query("select new com.restful.product_crud.model.ProductResponse(p.id, p.code, p.name, p.price, p.version, c.id, c.name, c.version) " +
+            "from Product p left join p.category c where p.id > :after and p.id <= :to order by p.id")
+    List<ProductResponse> findResponsesBetween(@Param("after") int after, @Param("to") int to, Limit limit);
+
+    @Query("select new com.restful.product_crud.model.ProductResponse(p.id, p.code, p.name, p.price, p.version, c.id, c.name, c.version) " +
+            "from Product p left join p.category c where p.id in :ids")
+    List<ProductResponse> findResponsesByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select new com.restful.product_crud.model.ProductChange(p.id, p.changeVersion, false) " +
+            "from Product p where p.changeVersion > :since and p.changeVersion < :below order by p.changeVersion, p.id")
+    List<ProductChange> findChangesSince(@Param("since") long since, @Param("below") long below, Limit limit);
+
+    @Query("select new com.restful.product_crud.model.ProductChange(p.id, p.changeVersion, false) " +
+            "from Product p where p.changeVersion = :changeVersion")
+    List<ProductChange> findChangesAt(@Param("changeVersion") long changeVersion);
+
+    @Query("select new com.restful.product_crud.model.CategoryStatsResponse(" +
+            "p.category.id, count(p), count(p.price), sum(p.price), min(p.price), max(p.price)) " +
+            "from Product p where p.category is not null group by p.category.id")
+    List<CategoryStatsResponse> findCategoryStats();
+
+    @Query("select new com.restful.product_crud.model.CategoryStatsResponse(" +
+            "p.category.id, count(p), count(p.price), sum(p.price), min(p.price), max(p.price)) " +
+            "from Product p where p.category.id = :categoryId group by p.category.id")
+    Optional<CategoryStatsResponse> findCategoryStats(@Param("categoryId") int categoryId);
+
+    @Query("select new com.restful.product_crud.model.CategoryStatsResponse(" +
+            "p.category.id, count(p), count(p.price), sum(p.price), min(p.price), max(p.price)) " +
+            "from Product p where p.category.id in :categoryIds group by p.category.id")
+    List<CategoryStatsResponse> findCategoryStats(@Param("categoryIds") Collection<Integer> categoryIds);
+
+    @Query("select distinct p.category.id from Product p where p.id in :ids and p.category is not null")
+    List<Integer> findCategoryIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select p.category.id from Product p where p.id = :id")
+    Optional<Integer> findCategoryId(@Param("id") int id);
+
+    @Query("select coalesce(max(p.id), 0) from Product p")
+    int findMaxId();
+
+    @Query("select p.id from Product p where p.category.id = :categoryId and p.id > :after order by p.id")
+    List<Integer> findIdsByCategoryId(@Param("categoryId") int categoryId, @Param("after") int after, Limit limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET price = COALESCE(:price, price), category_id = COALESCE(:categoryId, category_id), " +
+            "version = version + 1, change_version = :changeVersion WHERE id IN (:ids)", nativeQuery = true)
+    int updatePriceAndCategory(@Param("ids") Collection<Integer> ids, @Param("price") Double price, @Param("categoryId") Integer categoryId,
+                               @Param("changeVersion") long changeVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET code = COALESCE(:code, code), name = COALESCE(:name, name), price = COALESCE(:price, price), " +
+            "category_id = COALESCE(:categoryId, category_id), version = version + 1, change_version = :changeVersion WHERE id = :id", nativeQuery = true)
+    int patch(@Param("id") int id, @Param("code") String code, @Param("name") String name, @Param("price") Double price,
+              @Param("categoryId") Integer categoryId, @Param("changeVersion") long changeVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET category_id = :categoryId, version = version + 1, change_version = :changeVersion WHERE id IN (:ids)", nativeQuery = true)
+    int updateCategory(@Param("ids") Collection<Integer> ids, @Param("categoryId") Integer categoryId, @Param("changeVersion") long changeVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Product p where p.id = :id")
+    int deleteRow(@Param("id") int id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Product p where p.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Integer> ids);
 
     @Modifying
     @Transactional
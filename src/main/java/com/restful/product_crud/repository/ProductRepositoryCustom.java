@@ -0,0 +1,13 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.model.ProductFilter;
+import com.restful.product_crud.model.ProductResponse;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ProductRepositoryCustom {
+    Stream<ProductResponse> streamResponsesOrderById(int fetchSize);
+
+    List<ProductResponse> findResponses(ProductFilter filter, int limit);
+}
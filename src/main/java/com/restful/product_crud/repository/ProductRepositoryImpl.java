@@ -0,0 +1,93 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.entity.Category;
+import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.model.ProductFilter;
+import com.restful.product_crud.model.ProductResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<ProductResponse> streamResponsesOrderById(int fetchSize) {
+        // The fetch size is a hint to the driver. MySQL only streams rows instead of buffering the whole
+        // result set when it is Integer.MIN_VALUE (or when useCursorFetch=true is set on the URL).
+        return entityManager.createQuery(
+                        "select new com.restful.product_crud.model.ProductResponse(p.id, p.code, p.name, p.price, p.version, c.id, c.name, c.version) " +
+                                "from Product p left join p.category c order by p.id", ProductResponse.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * Keyset page over the filtered products. Filters and the sort column line up with the composite indexes
+     * on {@code products} ({@code category_id, price}, {@code category_id, name}, {@code price}, {@code name}),
+     * and the id tiebreaker comes for free because InnoDB appends the primary key to every secondary index.
+     * <p>
+     * Sorting by price leaves out products without a price: the API has always required one, so only rows
+     * that predate that rule are affected, and {@code NULL} has no place in a keyset ordering.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ProductResponse> findResponses(ProductFilter filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductResponse> query = cb.createQuery(ProductResponse.class);
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> category = product.join("category", JoinType.LEFT);
+
+        query.select(cb.construct(ProductResponse.class,
+                product.get("id"), product.get("code"), product.get("name"), product.get("price"), product.get("version"),
+                category.get("id"), category.get("name"), category.get("version")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCategoryId() != null) {
+            predicates.add(cb.equal(product.get("category").get("id"), filter.getCategoryId()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(product.get("price"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(product.get("price"), filter.getMaxPrice()));
+        }
+
+        Path<Integer> id = product.get("id");
+        boolean descending = filter.isDescending();
+        if ("id".equals(filter.getSort())) {
+            if (filter.getAfterId() != null) {
+                predicates.add(descending ? cb.lessThan(id, filter.getAfterId()) : cb.greaterThan(id, filter.getAfterId()));
+            }
+            query.orderBy(descending ? cb.desc(id) : cb.asc(id));
+        } else {
+            Path<Comparable<Object>> column = product.get(filter.getSort());
+            predicates.add(cb.isNotNull(column));
+            if (filter.getAfterId() != null) {
+                Comparable<Object> value = (Comparable<Object>) filter.getAfterValue();
+                Predicate beyond = descending ? cb.lessThan(column, value) : cb.greaterThan(column, value);
+                Predicate sameValue = cb.and(cb.equal(column, value),
+                        descending ? cb.lessThan(id, filter.getAfterId()) : cb.greaterThan(id, filter.getAfterId()));
+                predicates.add(cb.or(beyond, sameValue));
+            }
+            query.orderBy(descending ? cb.desc(column) : cb.asc(column), descending ? cb.desc(id) : cb.asc(id));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,44 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.entity.ProductTombstone;
+import com.restful.product_crud.model.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Integer> {
+    @Query("select new com.restful.product_crud.model.ProductChange(t.productId, t.changeVersion, true) " +
+            "from ProductTombstone t where t.changeVersion > :since and t.changeVersion < :below order by t.changeVersion, t.productId")
+    List<ProductChange> findChangesSince(@Param("since") long since, @Param("below") long below, Limit limit);
+
+    @Query("select new com.restful.product_crud.model.ProductChange(t.productId, t.changeVersion, true) " +
+            "from ProductTombstone t where t.changeVersion = :changeVersion")
+    List<ProductChange> findChangesAt(@Param("changeVersion") long changeVersion);
+
+    @Query("select distinct t.categoryId from ProductTombstone t where t.productId in :productIds and t.categoryId is not null")
+    List<Integer> findCategoryIds(@Param("productIds") Collection<Integer> productIds);
+
+    @Query("select max(t.changeVersion) from ProductTombstone t where t.deletedAt < :cutoff")
+    Optional<Long> findMaxChangeVersionDeletedBefore(@Param("cutoff") Instant cutoff);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from ProductTombstone t where t.productId in :productIds")
+    int deleteByProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO product_tombstones (product_id, code, category_id, change_version, deleted_at) " +
+            "SELECT id, code, category_id, :changeVersion, :deletedAt FROM products WHERE id IN (:productIds)", nativeQuery = true)
+    int insertFromProducts(@Param("productIds") Collection<Integer> productIds, @Param("changeVersion") long changeVersion,
+                           @Param("deletedAt") Instant deletedAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ProductTombstone t where t.changeVersion <= :changeVersion")
+    int deleteUpTo(@Param("changeVersion") long changeVersion);
+}
@@ -0,0 +1,26 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.model.CategoryResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking reads of {@code categories} over R2DBC, for the {@code reactive} profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCategoryRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<CategoryResponse> findAllResponses() {
+        return databaseClient.sql("SELECT id, name, version FROM categories ORDER BY id")
+                .map(row -> new CategoryResponse(row.get("id", Integer.class), row.get("name", String.class), row.get("version", Long.class)))
+                .all();
+    }
+
+}
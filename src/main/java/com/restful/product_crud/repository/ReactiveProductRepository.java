@@ -0,0 +1,102 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.model.ProductFilter;
+import com.restful.product_crud.model.ProductResponse;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Non-blocking reads of {@code products} over R2DBC, for the {@code reactive} profile. Returns the same flat
+ * projection as {@link ProductRepositoryImpl}, so both stacks produce identical responses and cursors.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProductRepository {
+
+    private static final String SELECT_RESPONSES = "SELECT p.id, p.code, p.name, p.price, p.version, " +
+            "c.id AS category_id, c.name AS category_name, c.version AS category_version " +
+            "FROM products p LEFT JOIN categories c ON c.id = p.category_id";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<ProductResponse> findResponseById(int id) {
+        return databaseClient.sql(SELECT_RESPONSES + " WHERE p.id = :id")
+                .bind("id", id)
+                .map(ReactiveProductRepository::toResponse)
+                .one();
+    }
+
+    /**
+     * Same keyset query as {@link ProductRepositoryImpl#findResponses}. Rows are emitted as the subscriber requests
+     * them, so with a {@code null} limit the whole filtered catalog can be streamed without holding it in memory.
+     */
+    public Flux<ProductResponse> findResponses(ProductFilter filter, Integer limit) {
+        StringBuilder sql = new StringBuilder(SELECT_RESPONSES).append(" WHERE 1 = 1");
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        if (filter.getCategoryId() != null) {
+            sql.append(" AND p.category_id = :categoryId");
+            bindings.put("categoryId", filter.getCategoryId());
+        }
+        if (filter.getMinPrice() != null) {
+            sql.append(" AND p.price >= :minPrice");
+            bindings.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            sql.append(" AND p.price <= :maxPrice");
+            bindings.put("maxPrice", filter.getMaxPrice());
+        }
+
+        // The sort column was checked against a fixed set by ProductService.filterOf, so it is safe to inline.
+        String direction = filter.isDescending() ? "DESC" : "ASC";
+        String comparison = filter.isDescending() ? "<" : ">";
+        if ("id".equals(filter.getSort())) {
+            if (filter.getAfterId() != null) {
+                sql.append(" AND p.id ").append(comparison).append(" :afterId");
+                bindings.put("afterId", filter.getAfterId());
+            }
+            sql.append(" ORDER BY p.id ").append(direction);
+        } else {
+            String column = "p." + filter.getSort();
+            sql.append(" AND ").append(column).append(" IS NOT NULL");
+            if (filter.getAfterId() != null) {
+                sql.append(" AND (").append(column).append(' ').append(comparison).append(" :afterValue")
+                        .append(" OR (").append(column).append(" = :afterValue AND p.id ").append(comparison).append(" :afterId))");
+                bindings.put("afterValue", filter.getAfterValue());
+                bindings.put("afterId", filter.getAfterId());
+            }
+            sql.append(" ORDER BY ").append(column).append(' ').append(direction).append(", p.id ").append(direction);
+        }
+
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+            bindings.put("limit", limit);
+        }
+
+        return databaseClient.sql(sql.toString())
+                .bindValues(bindings)
+                .map(ReactiveProductRepository::toResponse)
+                .all();
+    }
+
+    private static ProductResponse toResponse(Readable row) {
+        return new ProductResponse(
+                row.get("id", Integer.class),
+                row.get("code", String.class),
+                row.get("name", String.class),
+                row.get("price", Double.class),
+                row.get("version", Long.class),
+                row.get("category_id", Integer.class),
+                row.get("category_name", String.class),
+                row.get("category_version", Long.class));
+    }
+
+}
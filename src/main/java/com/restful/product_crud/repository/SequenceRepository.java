@@ -0,0 +1,19 @@
+package com.restful.product_crud.repository;
+
+import com.restful.product_crud.entity.Sequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SequenceRepository extends JpaRepository<Sequence, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Sequence s where s.name = :name")
+    Optional<Sequence> findForUpdate(@Param("name") String name);
+
+    @Query("select s.nextValue from Sequence s where s.name = :name")
+    Optional<Long> findNextValue(@Param("name") String name);
+}
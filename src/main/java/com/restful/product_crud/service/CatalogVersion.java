@@ -0,0 +1,39 @@
+package com.restful.product_crud.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the product and category listings on this node, for caching whole responses. Product writes bump the
+ * product version, category writes rebuild the {@link CategorySnapshot} and with it the category version.
+ * <p>
+ * Product writes bump the version twice: straight away and once the transaction has completed. A response built
+ * in between may have read the rows as they were before the commit, and the second bump retires it.
+ */
+@Component
+public class CatalogVersion {
+
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    private final AtomicLong products = new AtomicLong();
+
+    public void productsChanged() {
+        products.incrementAndGet();
+        TransactionCallbacks.afterCompletion(products::incrementAndGet);
+    }
+
+    /**
+     * Product responses embed the category name, so the category version is part of the product version.
+     */
+    public String products() {
+        return products.get() + "." + categorySnapshot.version();
+    }
+
+    public String categories() {
+        return Long.toString(categorySnapshot.version());
+    }
+
+}
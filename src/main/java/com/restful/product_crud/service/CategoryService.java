@@ -1,25 +1,30 @@
 package com.restful.product_crud.service;
 
+import com.restful.product_crud.config.MetricsConfiguration;
 import com.restful.product_crud.entity.Category;
 import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CategoryStatsResponse;
 import com.restful.product_crud.model.CreateCategoryRequest;
-import com.restful.product_crud.model.CreateProductRequest;
 import com.restful.product_crud.model.UpdateCategoryRequest;
 import com.restful.product_crud.repository.CategoryRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class CategoryService {
 
     @Autowired
@@ -28,18 +33,33 @@ public class CategoryService {
     @Autowired
     private Validator validator;
 
-    @Transactional
-    public List<CategoryResponse> list() {
-        List<Category> categories = categoryRepository.findAll();
-        List<CategoryResponse> categoryResponses = new ArrayList<>();
+    @Autowired
+    private ProductCache productCache;
 
-        for (Category category : categories) {
-            categoryResponses.add(
-                CategoryResponse.builder().id(category.getId()).name(category.getName()).build()
-            );
-        }
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    @Autowired
+    private CategoryStats categoryStats;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public static final String DELETE_RESTRICT = "restrict";
+
+    public static final String DELETE_DETACH = "detach";
+
+    public static final String DELETE_REASSIGN = "reassign";
+
+    public List<CategoryResponse> list() {
+        return categorySnapshot.list();
+    }
 
-        return categoryResponses;
+    public List<CategoryStatsResponse> stats() {
+        return categoryStats.list(categorySnapshot.list());
     }
 
     @Transactional
@@ -53,16 +73,14 @@ public class CategoryService {
         category.setName(request.getName());
 
         categoryRepository.save(category);
+        categorySnapshot.refresh(category.getId());
 
-        return CategoryResponse.builder().id(category.getId()).name(category.getName()).build();
+        return CategoryResponse.builder().id(category.getId()).name(category.getName()).version(category.getVersion()).build();
     }
 
-    @Transactional
     public CategoryResponse find(int id) {
-        Category category = categoryRepository.findById(id)
+        return categorySnapshot.findOrLoad(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
-
-        return CategoryResponse.builder().id(category.getId()).name(category.getName()).build();
     }
 
     @Transactional
@@ -77,16 +95,69 @@ public class CategoryService {
 
         category.setName(request.getName());
 
-        categoryRepository.save(category);
+        // Flushed so the response carries the version the update was written with.
+        categoryRepository.saveAndFlush(category);
+        productCache.evictCategory(id);
+        categorySnapshot.refresh();
 
-        return CategoryResponse.builder().id(category.getId()).name(category.getName()).build();
+        return CategoryResponse.builder().id(category.getId()).name(category.getName()).version(category.getVersion()).build();
     }
 
+    /**
+     * Deletes a category that has no products, with a single {@code DELETE}.
+     */
     @Transactional
     public void delete(int id) {
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
+        deleteRow(id);
+    }
+
+    /**
+     * Deletes a category, first moving its products according to {@code mode}: {@code restrict} refuses while the
+     * category has products, {@code detach} leaves them without a category and {@code reassign} moves them to
+     * {@code reassignTo}. Products are moved with set-based updates in chunks, so a category with any number of
+     * products is deleted without loading them, and no chunk holds its row locks for long.
+     */
+    public void delete(int id, String mode, Integer reassignTo) {
+        switch (mode) {
+            case DELETE_RESTRICT, DELETE_DETACH -> {
+                if (reassignTo != null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ReassignTo is only allowed with mode reassign.");
+                }
+            }
+            case DELETE_REASSIGN -> {
+                if (reassignTo == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ReassignTo is required with mode reassign.");
+                }
+                if (reassignTo == id) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ReassignTo must be another category.");
+                }
+                if (categorySnapshot.findOrLoad(reassignTo).isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category to reassign to not found.");
+                }
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mode must be one of restrict, detach or reassign.");
+        }
+
+        if (!mode.equals(DELETE_RESTRICT)) {
+            // A missing category has no products to move, and is reported by the delete below.
+            productService.moveCategory(id, reassignTo);
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> deleteRow(id));
+    }
+
+    private void deleteRow(int id) {
+        int deleted;
+        try {
+            deleted = categoryRepository.deleteRow(id);
+        } catch (DataIntegrityViolationException e) {
+            // Also reached when a product was added to the category after its products were moved.
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Category still has products. Delete it with mode detach or reassign.");
+        }
+        if (deleted == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found");
+        }
 
-        categoryRepository.delete(category);
+        categorySnapshot.refresh();
     }
 }
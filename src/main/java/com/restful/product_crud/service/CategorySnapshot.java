@@ -0,0 +1,164 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.repository.CategoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable, versioned copy of every category, so category reads never borrow a pooled connection.
+ * <p>
+ * Writers rebuild the whole snapshot after their transaction completes and publish it with a single reference
+ * swap. Readers only ever dereference the current snapshot, so they are wait-free even while a rebuild is running.
+ * <p>
+ * The snapshot is authoritative for reads: a category missing from it does not exist, with no database lookup.
+ * Category writes made on other nodes or directly in the database are picked up by a periodic rebuild every
+ * {@code product.categories.refresh-interval}. A rebuild that finds nothing changed keeps the current snapshot and
+ * its version, so it does not invalidate anything derived from it.
+ */
+@Component
+public class CategorySnapshot {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductCache productCache;
+
+    private TransactionTemplate rebuildTemplate;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    // Categories created on this node, with the number of writes whose rebuild has not published them yet.
+    private final Map<Integer, Integer> unpublished = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        rebuildTemplate = new TransactionTemplate(transactionManager);
+        rebuildTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        rebuildTemplate.setReadOnly(true);
+    }
+
+    public List<CategoryResponse> list() {
+        return snapshot().list;
+    }
+
+    public Optional<CategoryResponse> find(int id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    /**
+     * Looks the category up in the snapshot. Only a category created on this node that the snapshot does not have
+     * yet is read from the database, eg. by the transaction that created it or by a request racing with its rebuild.
+     */
+    public Optional<CategoryResponse> findOrLoad(int id) {
+        Optional<CategoryResponse> category = find(id);
+        return category.isPresent() || !unpublished.containsKey(id) ? category : categoryRepository.findResponseById(id);
+    }
+
+    public long version() {
+        return snapshot().version;
+    }
+
+    /**
+     * Schedules a rebuild for when the current transaction has committed or rolled back.
+     */
+    public void refresh() {
+        TransactionCallbacks.afterCompletion(this::rebuild);
+    }
+
+    /**
+     * Like {@link #refresh()}, for a category created by the current transaction. Lookups of it fall back to the
+     * database until the rebuild is done.
+     */
+    public void refresh(int createdId) {
+        unpublished.merge(createdId, 1, Integer::sum);
+        TransactionCallbacks.afterCompletion(() -> {
+            try {
+                rebuild();
+            } finally {
+                unpublished.computeIfPresent(createdId, (id, writes) -> writes == 1 ? null : writes - 1);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${product.categories.refresh-interval:PT30S}", initialDelayString = "${product.categories.refresh-interval:PT30S}")
+    public void reload() {
+        Snapshot before = current.get();
+        rebuild();
+        Snapshot after = current.get();
+        if (before == null || after == before) {
+            return;
+        }
+
+        // Cached products embed the category name, so drop those of categories renamed or deleted elsewhere.
+        for (CategoryResponse category : before.list) {
+            if (!category.equals(after.byId.get(category.getId()))) {
+                productCache.evictCategory(category.getId());
+            }
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            rebuild();
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    private void rebuild() {
+        long version = versions.incrementAndGet();
+        List<CategoryResponse> categories = rebuildTemplate.execute(status -> categoryRepository.findAllResponses());
+
+        CategoryResponse[] array = categories.toArray(new CategoryResponse[0]);
+        Map<Integer, CategoryResponse> byId = new HashMap<>(array.length * 2);
+        for (CategoryResponse category : array) {
+            byId.put(category.getId(), category);
+        }
+
+        Snapshot next = new Snapshot(version, Collections.unmodifiableList(Arrays.asList(array)), byId);
+
+        // Two rebuilds can finish out of order; never replace a snapshot with an older one. An unchanged one is
+        // kept as well, so its version only moves when the categories do.
+        current.accumulateAndGet(next, (previous, candidate) ->
+                previous == null || candidate.version > previous.version && !candidate.list.equals(previous.list) ? candidate : previous);
+    }
+
+    private static final class Snapshot {
+
+        final long version;
+
+        final List<CategoryResponse> list;
+
+        final Map<Integer, CategoryResponse> byId;
+
+        Snapshot(long version, List<CategoryResponse> list, Map<Integer, CategoryResponse> byId) {
+            this.version = version;
+            this.list = list;
+            this.byId = byId;
+        }
+    }
+
+}
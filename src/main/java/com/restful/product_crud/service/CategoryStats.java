@@ -0,0 +1,369 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CategoryStatsResponse;
+import com.restful.product_crud.repository.ProductRepository;
+import com.restful.product_crud.repository.ProductTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Product count and min/max/average price per category, maintained incrementally from the product write paths.
+ * <p>
+ * Counts and sums are striped adders, so concurrent writers never contend on a single counter. Minimum and
+ * maximum only move one way on insert; when a removed price was the current minimum or maximum, that category's
+ * extremes are recomputed with one query on the {@code (category_id, price)} index.
+ * <p>
+ * Writes that do not know the previous price or category (patches, set-based bulk statements) mark the affected
+ * categories, or the products when even the category is unknown, as dirty after commit. Every
+ * {@code product.stats.refresh-interval} those categories alone are recounted with one grouped query, off the
+ * request path. A periodic {@code GROUP BY} over all products replaces every counter to correct drift from floating
+ * point sums and from writes that race with it.
+ */
+@Component
+public class CategoryStats {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readTemplate;
+
+    private volatile Map<Integer, Bucket> buckets;
+
+    private final AtomicLong started = new AtomicLong();
+
+    // Guarded by installLock.
+    private long installed;
+
+    // Locks rather than synchronized, so a virtual thread waiting here does not pin its carrier.
+    private final Lock installLock = new ReentrantLock();
+
+    private final Lock loadLock = new ReentrantLock();
+
+    private final Set<Integer> dirtyCategories = ConcurrentHashMap.newKeySet();
+
+    private final Set<Integer> dirtyProducts = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTemplate.setReadOnly(true);
+    }
+
+    /**
+     * One entry per category, in the order given. Costs O(number of categories) and never touches the database
+     * once the counters are loaded.
+     */
+    public List<CategoryStatsResponse> list(List<CategoryResponse> categories) {
+        Map<Integer, Bucket> current = buckets();
+        List<CategoryStatsResponse> stats = new ArrayList<>(categories.size());
+        for (CategoryResponse category : categories) {
+            Bucket bucket = current.get(category.getId());
+            CategoryStatsResponse response = bucket != null ? bucket.toResponse(category.getId()) : CategoryStatsResponse.builder()
+                    .categoryId(category.getId())
+                    .build();
+            response.setCategoryName(category.getName());
+            stats.add(response);
+        }
+        return stats;
+    }
+
+    public void add(Integer categoryId, Double price) {
+        if (categoryId != null) {
+            TransactionCallbacks.afterCommit(() -> {
+                Bucket bucket = bucket(categoryId);
+                if (bucket != null) {
+                    bucket.add(price);
+                }
+            });
+        }
+    }
+
+    public void remove(Integer categoryId, Double price) {
+        if (categoryId != null) {
+            TransactionCallbacks.afterCommit(() -> {
+                Bucket bucket = bucket(categoryId);
+                if (bucket != null && bucket.remove(price)) {
+                    refreshExtremes(categoryId, bucket);
+                }
+            });
+        }
+    }
+
+    public void move(Integer oldCategoryId, Double oldPrice, Integer newCategoryId, Double newPrice) {
+        remove(oldCategoryId, oldPrice);
+        add(newCategoryId, newPrice);
+    }
+
+    /**
+     * Recounts these categories on the next {@link #refreshDirty()}, once the current transaction has committed.
+     */
+    public void markDirty(Collection<Integer> categoryIds) {
+        List<Integer> marked = categoryIds.stream().filter(id -> id != null).toList();
+        if (!marked.isEmpty()) {
+            TransactionCallbacks.afterCommit(() -> dirtyCategories.addAll(marked));
+        }
+    }
+
+    /**
+     * Recounts the categories these products are in, or were in when they were deleted, on the next
+     * {@link #refreshDirty()}. For writes that know neither the previous price nor the category.
+     */
+    public void markProductsDirty(Collection<Integer> productIds) {
+        List<Integer> marked = List.copyOf(productIds);
+        if (!marked.isEmpty()) {
+            TransactionCallbacks.afterCommit(() -> dirtyProducts.addAll(marked));
+        }
+    }
+
+    /**
+     * Recounts the categories marked dirty since the last run with one grouped query on the
+     * {@code (category_id, price)} index. A category whose counters were moved while the query ran stays dirty for
+     * the next run, since the query may or may not have seen that write.
+     */
+    @Scheduled(fixedDelayString = "${product.stats.refresh-interval:PT1S}")
+    public void refreshDirty() {
+        Map<Integer, Bucket> current = buckets;
+        if (current == null) {
+            // Nothing loaded yet. A load that starts after this sees every committed write anyway.
+            if (loadLock.tryLock()) {
+                try {
+                    if (buckets == null) {
+                        dirtyCategories.clear();
+                        dirtyProducts.clear();
+                    }
+                } finally {
+                    loadLock.unlock();
+                }
+            }
+            return;
+        }
+        if (dirtyCategories.isEmpty() && dirtyProducts.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> products = drain(dirtyProducts);
+        Set<Integer> categories = drain(dirtyCategories);
+        if (!products.isEmpty()) {
+            readTemplate.executeWithoutResult(status -> {
+                categories.addAll(productRepository.findCategoryIds(products));
+                categories.addAll(productTombstoneRepository.findCategoryIds(products));
+            });
+        }
+        if (categories.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Long> seen = new HashMap<>();
+        for (Integer categoryId : categories) {
+            Bucket bucket = current.get(categoryId);
+            seen.put(categoryId, bucket != null ? bucket.changes.sum() : -1);
+        }
+
+        Map<Integer, CategoryStatsResponse> rows = new HashMap<>();
+        for (CategoryStatsResponse row : readTemplate.execute(status -> productRepository.findCategoryStats(categories))) {
+            rows.put(row.getCategoryId(), row);
+        }
+
+        for (Integer categoryId : categories) {
+            Bucket recounted = new Bucket();
+            CategoryStatsResponse row = rows.get(categoryId);
+            if (row != null) {
+                recounted.reset(row);
+            }
+
+            Bucket bucket = current.get(categoryId);
+            long changes = bucket != null ? bucket.changes.sum() : -1;
+            boolean installed = changes == seen.get(categoryId)
+                    && (bucket != null ? current.replace(categoryId, bucket, recounted) : current.putIfAbsent(categoryId, recounted) == null);
+            if (!installed) {
+                dirtyCategories.add(categoryId);
+            }
+        }
+
+        if (buckets != current) {
+            // A full rebuild that may have read before these writes replaced the counters meanwhile.
+            dirtyCategories.addAll(categories);
+        }
+    }
+
+    private static Set<Integer> drain(Set<Integer> dirty) {
+        Set<Integer> drained = new HashSet<>();
+        for (Integer id : dirty) {
+            if (dirty.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Rebuilds every counter from a {@code GROUP BY} on {@code products}. Used on first read and periodically.
+     * <p>
+     * Rebuilds are numbered when they start reading, and one is only installed if no rebuild that started later
+     * was installed first. A periodic rebuild that read before a bulk write committed can then never replace the
+     * rebuild that write made afterwards.
+     */
+    @Scheduled(fixedDelayString = "${product.stats.reconcile-interval:PT5M}", initialDelayString = "${product.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        long generation = started.incrementAndGet();
+        List<CategoryStatsResponse> rows = readTemplate.execute(status -> productRepository.findCategoryStats());
+
+        Map<Integer, Bucket> rebuilt = new ConcurrentHashMap<>();
+        for (CategoryStatsResponse row : rows) {
+            Bucket bucket = new Bucket();
+            bucket.reset(row);
+            rebuilt.put(row.getCategoryId(), bucket);
+        }
+
+        installLock.lock();
+        try {
+            if (generation > installed) {
+                installed = generation;
+                buckets = rebuilt;
+            }
+        } finally {
+            installLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the counters on first read. Concurrent first readers wait for a single load instead of each running
+     * their own {@code GROUP BY}.
+     */
+    private Map<Integer, Bucket> buckets() {
+        Map<Integer, Bucket> current = buckets;
+        if (current != null) {
+            return current;
+        }
+
+        loadLock.lock();
+        try {
+            if (buckets == null) {
+                reconcile();
+            }
+            return buckets;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns null until the counters are first loaded; the load reads committed rows, so writes before it
+     * must not be applied a second time.
+     */
+    private Bucket bucket(int categoryId) {
+        Map<Integer, Bucket> current = buckets;
+        return current != null ? current.computeIfAbsent(categoryId, id -> new Bucket()) : null;
+    }
+
+    private void refreshExtremes(int categoryId, Bucket bucket) {
+        CategoryStatsResponse row = readTemplate.execute(status -> productRepository.findCategoryStats(categoryId).orElse(null));
+        bucket.resetExtremes(row != null ? row.getMinPrice() : null, row != null ? row.getMaxPrice() : null);
+    }
+
+    private static final class Bucket {
+
+        final LongAdder count = new LongAdder();
+
+        final LongAdder priced = new LongAdder();
+
+        final DoubleAdder sum = new DoubleAdder();
+
+        final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+
+        final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+        // Incremental moves applied, so a recount can tell whether one raced with it.
+        final LongAdder changes = new LongAdder();
+
+        void add(Double price) {
+            changes.increment();
+            count.increment();
+            if (price != null) {
+                priced.increment();
+                sum.add(price);
+                min.accumulate(price);
+                max.accumulate(price);
+            }
+        }
+
+        /**
+         * Returns whether the removed price was an extreme, in which case min and max have to be reloaded.
+         */
+        boolean remove(Double price) {
+            changes.increment();
+            count.decrement();
+            if (price == null) {
+                return false;
+            }
+
+            priced.decrement();
+            sum.add(-price);
+            return price <= min.get() || price >= max.get();
+        }
+
+        void reset(CategoryStatsResponse row) {
+            count.add(row.getProductCount());
+            priced.add(row.getPricedCount());
+            sum.add(row.getPriceSum());
+            resetExtremes(row.getMinPrice(), row.getMaxPrice());
+        }
+
+        void resetExtremes(Double minPrice, Double maxPrice) {
+            // A price accumulated between reset() and accumulate() is kept, since min/max of both is still right.
+            min.reset();
+            max.reset();
+            if (minPrice != null) {
+                min.accumulate(minPrice);
+            }
+            if (maxPrice != null) {
+                max.accumulate(maxPrice);
+            }
+        }
+
+        CategoryStatsResponse toResponse(int categoryId) {
+            long products = Math.max(0, count.sum());
+            long pricedProducts = Math.max(0, priced.sum());
+            double minPrice = min.get();
+            double maxPrice = max.get();
+            return CategoryStatsResponse.builder()
+                    .categoryId(categoryId)
+                    .productCount(products)
+                    .pricedCount(pricedProducts)
+                    .priceSum(sum.sum())
+                    .minPrice(pricedProducts > 0 && minPrice != Double.POSITIVE_INFINITY ? minPrice : null)
+                    .maxPrice(pricedProducts > 0 && maxPrice != Double.NEGATIVE_INFINITY ? maxPrice : null)
+                    .averagePrice(pricedProducts > 0 ? sum.sum() / pricedProducts : null)
+                    .build();
+        }
+    }
+
+}
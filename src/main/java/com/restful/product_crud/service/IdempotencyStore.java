@@ -0,0 +1,211 @@
+package com.restful.product_crud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restful.product_crud.entity.IdempotencyRecord;
+import com.restful.product_crud.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response of a create request by its {@code Idempotency-Key}, so a retried request gets the original
+ * response back instead of creating a second row.
+ * <p>
+ * Entries are futures published before the request runs. A duplicate that arrives while the original is still
+ * running waits for it and gets the same response (or the same error), so concurrent duplicates cause one insert.
+ * Failed requests are not remembered, a retry after an error runs again. A key reused with a different request body
+ * is rejected with 422.
+ * <p>
+ * The in-memory store only covers retries that reach the same node. With {@code product.idempotency.database-enabled}
+ * the key is also claimed in the {@code idempotency_keys} table before the request runs and the response is stored
+ * there, so a retry routed to another node is answered from the table, or with 409 while the original is running.
+ * The request and its stored response commit in one transaction. A claim still without a response after
+ * {@code product.idempotency.claim-timeout} belongs to a node that died or rolled back, and the next retry takes it
+ * over and runs the request again.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${product.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${product.idempotency.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${product.idempotency.database-enabled:false}")
+    private boolean databaseEnabled;
+
+    @Value("${product.idempotency.claim-timeout:5m}")
+    private Duration claimTimeout;
+
+    private Cache<String, CompletableFuture<Entry>> entries;
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} once per {@code scope} and key and returns its result, or the result of the earlier run.
+     *
+     * @param request the request body, whose fingerprint has to match the one the key was first used with
+     */
+    public <T> T execute(String scope, String key, Object request, Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = entries.asMap().putIfAbsent(id, created);
+        if (existing != null) {
+            return replay(join(existing), fingerprint, type);
+        }
+
+        try {
+            Entry entry = databaseEnabled ? executeShared(id, fingerprint, type, action) : new Entry(fingerprint, action.get());
+            created.complete(entry);
+            return replay(entry, fingerprint, type);
+        } catch (Throwable e) {
+            // Forget the key so a retry runs again. Duplicates already waiting on this future get the same error.
+            entries.asMap().remove(id, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.idempotency.purge-interval:PT1H}", initialDelayString = "${product.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        if (databaseEnabled) {
+            idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        }
+    }
+
+    private <T> Entry executeShared(String id, String fingerprint, Class<T> type, Supplier<T> action) {
+        // Truncated so the claim time reads back equal from the TIMESTAMP(6) column.
+        Instant claimedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try {
+            idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(id, fingerprint, claimedAt));
+        } catch (DataIntegrityViolationException e) {
+            // Claimed by another node, or by this one before a restart.
+            IdempotencyRecord claimed = idempotencyRecordRepository.findById(id).orElse(null);
+            if (claimed != null && claimed.getResponse() != null) {
+                return new Entry(claimed.getFingerprint(), readResponse(claimed.getResponse(), type));
+            }
+            if (claimed == null || idempotencyRecordRepository.takeOver(id, fingerprint, claimedAt, claimedAt.minus(claimTimeout)) == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed.");
+            }
+        }
+
+        T result;
+        try {
+            result = new TransactionTemplate(transactionManager).execute(status -> {
+                T value = action.get();
+                if (idempotencyRecordRepository.saveResponse(id, claimedAt, writeResponse(value)) == 0) {
+                    // The claim timed out and another retry took it over, which runs the request itself.
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed.");
+                }
+                return value;
+            });
+        } catch (Throwable e) {
+            idempotencyRecordRepository.deleteClaim(id, claimedAt);
+            throw e;
+        }
+        return new Entry(fingerprint, result);
+    }
+
+    private static <T> T replay(Entry entry, String fingerprint, Class<T> type) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request.");
+        }
+        return type.cast(entry.response);
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String writeResponse(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T readResponse(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        final String fingerprint;
+
+        final Object response;
+
+        Entry(String fingerprint, Object response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+    }
+
+}
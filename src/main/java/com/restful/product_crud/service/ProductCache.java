@@ -0,0 +1,119 @@
+package com.restful.product_crud.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.restful.product_crud.model.CacheStatsResponse;
+import com.restful.product_crud.model.ProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of {@link ProductResponse} by product id.
+ * <p>
+ * Evictions happen immediately and again once the writing transaction completes. The second pass drops anything a
+ * concurrent reader loaded from the database before the write was committed.
+ * <p>
+ * Entries are futures so that a miss is loaded on the caller's thread after the entry is published, not inside the
+ * map's compute lock. Concurrent misses for the same id still wait for a single load, but the database round trip
+ * never runs while holding a monitor, which would pin a virtual thread to its carrier.
+ */
+@Component
+public class ProductCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${product.cache.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    private AsyncCache<Integer, ProductResponse> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    public ProductResponse get(int id, Function<Integer, ProductResponse> loader) {
+        CompletableFuture<ProductResponse> loading = new CompletableFuture<>();
+        CompletableFuture<ProductResponse> future = cache.get(id, (key, executor) -> loading);
+        if (future == loading) {
+            try {
+                loading.complete(loader.apply(id));
+            } catch (Throwable e) {
+                // Failed futures are dropped from the cache, so the next reader tries again. Errors are caught too,
+                // or the future would never complete and every later reader of this id would wait forever.
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void evict(int id) {
+        cache.synchronous().invalidate(id);
+        TransactionCallbacks.afterCompletion(() -> cache.synchronous().invalidate(id));
+    }
+
+    public void evictAll(Collection<Integer> ids) {
+        cache.synchronous().invalidateAll(ids);
+        TransactionCallbacks.afterCompletion(() -> cache.synchronous().invalidateAll(ids));
+    }
+
+    /**
+     * Drops every product of a category, since cached responses embed the category name.
+     */
+    public void evictCategory(int categoryId) {
+        removeCategory(categoryId);
+        TransactionCallbacks.afterCompletion(() -> removeCategory(categoryId));
+    }
+
+    public void clear() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return CacheStatsResponse.builder()
+                .size(cache.synchronous().estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+
+    private void removeCategory(int categoryId) {
+        cache.synchronous().asMap().values().removeIf(product -> product.getCategory() != null && product.getCategory().getId() == categoryId);
+    }
+
+}
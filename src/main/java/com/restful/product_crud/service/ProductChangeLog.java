@@ -0,0 +1,389 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.entity.Sequence;
+import com.restful.product_crud.repository.ProductTombstoneRepository;
+import com.restful.product_crud.repository.SequenceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change versions for {@code GET /products/changes}. Every product write takes the next version and stores it in
+ * {@code products.change_version}, or in {@code product_tombstones} for deletes.
+ * <p>
+ * Versions are handed out from blocks of {@code product.changes.block-size} reserved on the {@code product_change}
+ * row of the {@code sequences} table (hi/lo style, like {@link ProductCodeGenerator}), so a write only touches that
+ * row once per block, and the next block is prefetched in the background. Versions may commit out of order, and a
+ * reader must not move past a version that is still being written: {@link #visibleBelow()} is the lowest version
+ * this node still has in flight.
+ * <p>
+ * On a single node that is enough. With more than one node, {@code product.changes.safety-lag} must be set: readers
+ * then also stop below the sequence value sampled that long ago, and a block is only used for half the lag after it
+ * was reserved, so every version below that value was handed out at least half the lag ago. A node that finds the
+ * sequence moved by somebody else while the lag is zero logs a warning.
+ * <p>
+ * Tombstones are purged after {@code product.changes.tombstone-retention}. The highest purged version is kept as the
+ * horizon, and clients that last synced below it have to reload the catalog.
+ */
+@Component
+public class ProductChangeLog {
+
+    static final String SEQUENCE_NAME = "product_change";
+
+    static final String HORIZON_NAME = "product_change_horizon";
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeLog.class);
+
+    @Autowired
+    private SequenceRepository sequenceRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${product.changes.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    @Value("${product.changes.safety-lag:0s}")
+    private Duration safetyLag;
+
+    @Value("${product.changes.block-size:100}")
+    private int blockSize;
+
+    private TransactionTemplate reservationTemplate;
+
+    // Guards the current block; versions are registered in flight before next moves past them.
+    private final ReentrantLock handOutLock = new ReentrantLock();
+
+    private VersionBlock currentBlock = VersionBlock.EMPTY;
+
+    private volatile long next;
+
+    private final AtomicReference<VersionBlock> nextBlock = new AtomicReference<>();
+
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+
+    // Reservations from the prefetch and from next() run one at a time, so this node can tell its own from others'.
+    private final ReentrantLock reservationLock = new ReentrantLock();
+
+    private long lastReservedEnd;
+
+    private final AtomicBoolean warnedAboutOtherNodes = new AtomicBoolean();
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-change-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Versions taken on this node whose transactions have not completed yet.
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    // Pairs of System.nanoTime() and the sequence value read at that time, oldest first.
+    private final ConcurrentLinkedDeque<long[]> samples = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Creates the sequence rows if init.sql did not. Done up front, because a locking read of a missing row takes a
+     * gap lock on MySQL, and two writers that both found it missing would deadlock inserting it.
+     */
+    @PostConstruct
+    void init() {
+        // Reservations commit on their own, so a block is never handed out twice, even if the write that reserved
+        // it rolls back.
+        reservationTemplate = new TransactionTemplate(transactionManager);
+        reservationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Sequence sequence : new Sequence[]{new Sequence(SEQUENCE_NAME, 1), new Sequence(HORIZON_NAME, 0)}) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!sequenceRepository.existsById(sequence.getName())) {
+                        sequenceRepository.saveAndFlush(sequence);
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Created by another node starting at the same time.
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Takes the next change version for the calling transaction. The version counts as in flight until that
+     * transaction completes.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public long next() {
+        Set<Long> owned = owned();
+        handOutLock.lock();
+        try {
+            if (next >= currentBlock.end || currentBlock.expired(System.nanoTime())) {
+                advance();
+            }
+
+            long version = next;
+            // Registered before next moves past it, so a reader that sees the new next also sees this in flight.
+            inFlight.add(version);
+            owned.add(version);
+            next = version + 1;
+            if (currentBlock.end - next == Math.max(1, blockSize / 4)) {
+                prefetch();
+            }
+            return version;
+        } finally {
+            handOutLock.unlock();
+        }
+    }
+
+    private void advance() {
+        VersionBlock prefetched = nextBlock.getAndSet(null);
+        if (prefetched == null || prefetched.expired(System.nanoTime())) {
+            prefetched = reserve();
+        }
+        currentBlock = prefetched;
+        next = prefetched.start;
+    }
+
+    private void prefetch() {
+        if (!prefetching.compareAndSet(false, true)) {
+            return;
+        }
+
+        prefetchExecutor.execute(() -> {
+            try {
+                if (nextBlock.get() == null) {
+                    nextBlock.compareAndSet(null, reserve());
+                }
+            } catch (RuntimeException e) {
+                // next() reserves a block itself if the prefetch failed.
+            } finally {
+                prefetching.set(false);
+            }
+        });
+    }
+
+    private VersionBlock reserve() {
+        reservationLock.lock();
+        try {
+            // Taken before the reservation commits, so the block never outlives a sample that saw it.
+            long reservedAt = System.nanoTime();
+            VersionBlock block = reservationTemplate.execute(status -> {
+                Sequence sequence = lock(SEQUENCE_NAME);
+                long start = sequence.getNextValue();
+                sequence.setNextValue(start + blockSize);
+                sequenceRepository.save(sequence);
+                return new VersionBlock(start, start + blockSize, reservedAt, safetyLag.toNanos() / 2);
+            });
+
+            if (safetyLag.isZero() && lastReservedEnd != 0 && block.start != lastReservedEnd
+                    && warnedAboutOtherNodes.compareAndSet(false, true)) {
+                log.warn("Change versions {} to {} were taken by another node. Set product.changes.safety-lag above "
+                        + "twice the longest product write, or GET /products/changes can skip changes.", lastReservedEnd, block.start - 1);
+            }
+            lastReservedEnd = block.end;
+            return block;
+        } finally {
+            reservationLock.unlock();
+        }
+    }
+
+    /**
+     * Versions taken by the current transaction. They are visible to it, so they do not hold back its own reads.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Long> owned() {
+        Set<Long> owned = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (owned != null) {
+            return owned;
+        }
+
+        Set<Long> created = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(ProductChangeLog.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(ProductChangeLog.this, created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ProductChangeLog.this);
+                inFlight.removeAll(created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Every version below the returned one is either committed or will never be. Readers of
+     * {@code GET /products/changes} only return versions below it, so a version they skipped can never show up
+     * behind one they returned.
+     */
+    public long visibleBelow() {
+        // Read before the in-flight versions, so anything taken after this read is above the bound either way.
+        long bound = safetyLag.isZero() ? localBound() : sampledBelow();
+
+        Set<Long> owned = TransactionSynchronizationManager.isSynchronizationActive() ? ownedIfAny() : Set.of();
+        for (Long version : inFlight) {
+            if (version >= bound) {
+                break;
+            }
+            if (!owned.contains(version)) {
+                return version;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Without other nodes, nothing at or above this node's next version has been handed out. Before the first
+     * write that is the start of the next block, which is still in the sequence row.
+     */
+    private long localBound() {
+        long bound = next;
+        return bound != 0 ? bound : nextValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> ownedIfAny() {
+        Set<Long> owned = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        return owned != null ? owned : Set.of();
+    }
+
+    /**
+     * Remembers the sequence value once per {@code product.changes.sample-interval}, so readers can tell which
+     * versions were taken more than {@code product.changes.safety-lag} ago. Only used with a safety lag.
+     */
+    @Scheduled(fixedDelayString = "${product.changes.sample-interval:PT1S}")
+    public void sample() {
+        if (safetyLag.isZero()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        samples.addLast(new long[]{now, nextValue()});
+        // Keep the newest sample that is already old enough, and everything after it.
+        while (samples.size() > 1) {
+            Iterator<long[]> iterator = samples.iterator();
+            iterator.next();
+            if (now - iterator.next()[0] < safetyLag.toNanos()) {
+                break;
+            }
+            samples.pollFirst();
+        }
+    }
+
+    private long sampledBelow() {
+        long cutoff = System.nanoTime() - safetyLag.toNanos();
+        Iterator<long[]> iterator = samples.descendingIterator();
+        while (iterator.hasNext()) {
+            long[] sample = iterator.next();
+            if (sample[0] <= cutoff) {
+                return sample[1];
+            }
+        }
+        // Not running for long enough yet.
+        return 1;
+    }
+
+    private long nextValue() {
+        return sequenceRepository.findNextValue(SEQUENCE_NAME)
+                .orElseThrow(() -> new IllegalStateException("Sequence " + SEQUENCE_NAME + " is missing."));
+    }
+
+    /**
+     * Records tombstones for the products with these ids. Has to run before the products are deleted, the
+     * tombstones are copied from their rows.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordDeletes(Collection<Integer> ids, long version) {
+        // Only left over when ids are reused, eg. after the auto increment counter was reset.
+        productTombstoneRepository.deleteByProductIds(ids);
+        productTombstoneRepository.insertFromProducts(ids, version, Instant.now());
+    }
+
+    /**
+     * Versions up to and including the horizon may have lost their tombstones.
+     */
+    public long horizon() {
+        return sequenceRepository.findNextValue(HORIZON_NAME).orElse(0L);
+    }
+
+    @Scheduled(fixedDelayString = "${product.changes.purge-interval:PT1H}", initialDelayString = "${product.changes.purge-interval:PT1H}")
+    @Transactional
+    public void purge() {
+        productTombstoneRepository.findMaxChangeVersionDeletedBefore(Instant.now().minus(tombstoneRetention)).ifPresent(version -> {
+            Sequence horizon = lock(HORIZON_NAME);
+            horizon.setNextValue(Math.max(horizon.getNextValue(), version));
+            productTombstoneRepository.deleteUpTo(version);
+        });
+    }
+
+    private Sequence lock(String name) {
+        return sequenceRepository.findForUpdate(name)
+                .orElseThrow(() -> new IllegalStateException("Sequence " + name + " is missing."));
+    }
+
+    private static final class VersionBlock {
+
+        static final VersionBlock EMPTY = new VersionBlock(0, 0, 0, 0);
+
+        final long start;
+
+        final long end;
+
+        // System.nanoTime() before the reservation, and how long versions may be handed out after it; 0 for ever.
+        final long reservedAt;
+
+        final long lifetime;
+
+        VersionBlock(long start, long end, long reservedAt, long lifetime) {
+            this.start = start;
+            this.end = end;
+            this.reservedAt = reservedAt;
+            this.lifetime = lifetime;
+        }
+
+        boolean expired(long now) {
+            return lifetime > 0 && now - reservedAt >= lifetime;
+        }
+    }
+
+}
@@ -1,59 +1,317 @@
 package com.restful.product_crud.service;
 
-import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.config.MetricsConfiguration;
+import com.restful.product_crud.entity.Sequence;
 import com.restful.product_crud.repository.ProductRepository;
-import jakarta.transaction.Transactional;
+import com.restful.product_crud.repository.SequenceRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.IllegalFormatException;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
+/**
+ * Hands out product codes from blocks reserved on the {@code sequences} table (hi/lo style).
+ * The common path is a single {@link AtomicLong} increment with no database access. A block is
+ * only reserved when the current one runs out, and the next block is prefetched in the background
+ * before that happens.
+ */
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class ProductCodeGenerator {
 
+    static final String SEQUENCE_NAME = "product_code";
+
+    static final String COLLISIONS_METRIC = "product.code.collisions";
+
     @Autowired
     private ProductRepository productRepository;
 
-    private final String defaultCode = "P00001";
-    private final String format = "^P\\d{5}$";
+    @Autowired
+    private SequenceRepository sequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    @Transactional
-    public String generate(int additionNumber) {
-        String code = defaultCode;
+    @Value("${product.code.prefix:P}")
+    private String prefix;
 
-        Optional<Product> latestProduct = productRepository.findFirstByOrderByIdDesc();
-        if (latestProduct.isPresent()) {
-            code = latestProduct.get().getCode();
-            code = code.substring(1, code.length()-1);
+    @Value("${product.code.width:5}")
+    private int width;
 
-            int codeInInt;
-            try {
-                codeInInt = Integer.parseInt(code);
-                codeInInt += additionNumber;
-            } catch (NumberFormatException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error generating product code. 1");
-            }
+    @Value("${product.code.block-size:100}")
+    private int blockSize;
 
-            try {
-                code = String.format("P%5s", codeInInt).replace(" ", "0");
-            } catch (IllegalFormatException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error generating product code. 2");
+    private Pattern format;
+
+    private long maxValue;
+
+    private TransactionTemplate reservationTemplate;
+
+    private Counter skippedCodes;
+
+    private Counter inlineReservations;
+
+    private Counter prefetchedReservations;
+
+    private Counter batchReservations;
+
+    private Counter prefetchFailures;
+
+    private final AtomicReference<CodeBlock> currentBlock = new AtomicReference<>(CodeBlock.EMPTY);
+
+    private final AtomicReference<CodeBlock> nextBlock = new AtomicReference<>();
+
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+
+    // Not synchronized: a virtual thread blocked on the reservation query inside a monitor would pin its carrier.
+    private final ReentrantLock advanceLock = new ReentrantLock();
+
+    private final Set<Long> claimedValues = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-code-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void init() {
+        configure();
+
+        // Created up front, so a reservation only ever locks an existing row. Inserting it under the locking read
+        // takes a gap lock, and two nodes doing that at once deadlock each other.
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (!sequenceRepository.existsById(SEQUENCE_NAME)) {
+                    sequenceRepository.saveAndFlush(new Sequence(SEQUENCE_NAME, 1));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created by another node starting at the same time.
+        }
+    }
+
+    /**
+     * Everything {@link #init()} does except creating the sequence row, so {@link #detached} needs no database.
+     */
+    void configure() {
+        format = Pattern.compile("^" + Pattern.quote(prefix) + "\\d{" + width + "}$");
+        maxValue = (long) Math.pow(10, width) - 1;
+
+        // Reservations commit on their own, so a rolled back product insert never returns a block to the pool
+        // and two nodes can never be handed the same range.
+        reservationTemplate = new TransactionTemplate(transactionManager);
+        reservationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        skippedCodes = meterRegistry.counter(COLLISIONS_METRIC, "source", "reserved");
+        inlineReservations = meterRegistry.counter("product.code.reservations", "mode", "inline");
+        prefetchedReservations = meterRegistry.counter("product.code.reservations", "mode", "prefetch");
+        batchReservations = meterRegistry.counter("product.code.reservations", "mode", "batch");
+        prefetchFailures = meterRegistry.counter("product.code.prefetch.failures");
+        Gauge.builder("product.code.block.remaining", currentBlock, block -> Math.max(0, block.get().end - block.get().next.get()))
+                .description("Codes left in the block currently being handed out")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A generator without a database that hands out the codes from {@code start} up to {@code end}, for
+     * benchmarks. It fails once they run out.
+     */
+    static ProductCodeGenerator detached(String prefix, int width, long start, long end, MeterRegistry meterRegistry) {
+        ProductCodeGenerator generator = new ProductCodeGenerator();
+        generator.prefix = prefix;
+        generator.width = width;
+        generator.blockSize = (int) Math.min(Integer.MAX_VALUE, end - start);
+        generator.meterRegistry = meterRegistry;
+        generator.configure();
+        generator.currentBlock.set(new CodeBlock(start, end));
+        return generator;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    public String generate() {
+        while (true) {
+            CodeBlock block = currentBlock.get();
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                if (block.end - value == Math.max(1, blockSize / 4)) {
+                    prefetch();
+                }
+                if (claimedValues.remove(value)) {
+                    // Somebody created a product with this code by hand after the block was reserved.
+                    skippedCodes.increment();
+                    continue;
+                }
+                return format(value);
             }
+
+            advance(block);
         }
+    }
 
-        if (productRepository.existsByCode(code)) {
-            return generate(++additionNumber);
+    /**
+     * Allocates codes for a batch. Batches at least as large as a block get a dedicated range, so a big
+     * import costs a single reservation instead of one per block.
+     */
+    public List<String> generate(int count) {
+        List<String> codes = new ArrayList<>(count);
+        if (count < blockSize) {
+            for (int i = 0; i < count; i++) {
+                codes.add(generate());
+            }
+            return codes;
         }
 
-        return code;
+        CodeBlock block = reserve(highestUsedValue(), count);
+        batchReservations.increment();
+        for (long value = block.next.get(); value < block.end; value++) {
+            codes.add(format(value));
+        }
+        return codes;
     }
 
     public boolean validateCode(String code) {
-        return Pattern.matches(format, code);
+        return format.matcher(code).matches();
+    }
+
+    /**
+     * Records a code that was supplied by a client, so it is skipped if it falls in a range that this
+     * node has already reserved but not handed out yet.
+     */
+    public void claim(String code) {
+        if (!validateCode(code)) {
+            return;
+        }
+
+        long value = Long.parseLong(code.substring(prefix.length()));
+        if (isPending(currentBlock.get(), value) || isPending(nextBlock.get(), value)) {
+            claimedValues.add(value);
+        }
+    }
+
+    public String getFormatDescription() {
+        return prefix + "X".repeat(width) + " (eg. " + format(1) + ")";
+    }
+
+    private String format(long value) {
+        if (value > maxValue) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Product code space exhausted. Increase product.code.width.");
+        }
+
+        String digits = Long.toString(value);
+        StringBuilder code = new StringBuilder(prefix.length() + width).append(prefix);
+        for (int i = digits.length(); i < width; i++) {
+            code.append('0');
+        }
+        return code.append(digits).toString();
+    }
+
+    private void advance(CodeBlock exhausted) {
+        advanceLock.lock();
+        try {
+            if (currentBlock.get() != exhausted) {
+                return;
+            }
+
+            // Read in the caller's transaction, so codes it has inserted but not committed yet are also skipped.
+            CodeBlock prefetched = nextBlock.getAndSet(null);
+            if (prefetched == null) {
+                prefetched = reserve(highestUsedValue(), blockSize);
+                inlineReservations.increment();
+            }
+            currentBlock.set(prefetched);
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    private void prefetch() {
+        if (!prefetching.compareAndSet(false, true)) {
+            return;
+        }
+
+        prefetchExecutor.execute(() -> {
+            try {
+                if (nextBlock.get() == null) {
+                    nextBlock.compareAndSet(null, reserve(0, blockSize));
+                    prefetchedReservations.increment();
+                }
+            } catch (RuntimeException e) {
+                prefetchFailures.increment();
+                // The synchronous path in advance() reserves a block if the prefetch failed.
+            } finally {
+                prefetching.set(false);
+            }
+        });
+    }
+
+    private long highestUsedValue() {
+        return productRepository.findMaxCode(prefix, prefix.length() + width)
+                .map(code -> Long.parseLong(code.substring(prefix.length())))
+                .orElse(0L);
+    }
+
+    private CodeBlock reserve(long callerHighestUsedValue, int size) {
+        return reservationTemplate.execute(status -> {
+            Sequence sequence = sequenceRepository.findForUpdate(SEQUENCE_NAME)
+                    .orElseThrow(() -> new IllegalStateException("Sequence " + SEQUENCE_NAME + " is missing."));
+
+            // Jump past codes that were created by hand, or before the sequence row existed.
+            long start = Math.max(sequence.getNextValue(), Math.max(callerHighestUsedValue, highestUsedValue()) + 1);
+            sequence.setNextValue(start + size);
+            sequenceRepository.save(sequence);
+
+            return new CodeBlock(start, start + size);
+        });
+    }
+
+    private static boolean isPending(CodeBlock block, long value) {
+        return block != null && value >= block.next.get() && value < block.end;
+    }
+
+    private static final class CodeBlock {
+
+        static final CodeBlock EMPTY = new CodeBlock(0, 0);
+
+        final AtomicLong next;
+
+        final long end;
+
+        CodeBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
     }
 
 }
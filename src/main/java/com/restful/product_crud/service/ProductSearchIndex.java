@@ -0,0 +1,626 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.ProductChange;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.repository.ProductRepository;
+import com.restful.product_crud.repository.ProductTombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over product names.
+ * <p>
+ * Every lower-cased token maps to a sorted list of product ids. A list is an array and a size that are never
+ * changed once published, so searches run without locking while writers swap in new lists one term at a time. New
+ * ids are larger than all others, so they are appended into spare capacity past the published size, and only
+ * removals and the rare insert in the middle copy the array. The changes of one transaction are applied together
+ * after it commits, so a batch insert touches each list once. Writers are serialized by a single lock; they are
+ * rare compared to searches.
+ * <p>
+ * Writes made on other nodes are picked up every {@code product.search.catch-up-interval} from the change versions
+ * behind {@code GET /products/changes}, and the whole index is rebuilt every {@code product.search.rebuild-interval}
+ * for writes made directly in the database.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int[] NO_IDS = new int[0];
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    @Value("${product.search.rebuild-threads:0}")
+    private int rebuildThreads;
+
+    @Value("${product.search.rebuild-page-size:5000}")
+    private int rebuildPageSize;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile State state = new State();
+
+    // Every change version up to this one is in the index; -1 until the first rebuild.
+    private volatile long syncedVersion = -1;
+
+    /**
+     * Writes made while a rebuild is running, replayed on the rebuilt state before it is published.
+     */
+    private List<Consumer<State>> pendingWrites;
+
+    /**
+     * Adds or re-indexes a product once the current transaction commits.
+     */
+    public void index(int id, String name) {
+        stage(id, tokenize(name));
+    }
+
+    public void remove(int id) {
+        stage(id, null);
+    }
+
+    public void removeAll(Collection<Integer> ids) {
+        ids.forEach(id -> stage(id, null));
+    }
+
+    /**
+     * Returns the ids of products whose name contains every term of the query, best match first. A product
+     * ranks higher the larger the share of its name the query covers; ties are broken by id.
+     */
+    public int[] search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return NO_IDS;
+        }
+
+        State current = state;
+        Postings[] postings = new Postings[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            postings[i] = current.postings.get(terms[i]);
+            if (postings[i] == null) {
+                return NO_IDS;
+            }
+        }
+
+        // Start from the rarest term so every intersection step works on the smallest candidate set.
+        Arrays.sort(postings, Comparator.comparingInt(ids -> ids.size));
+        int[] candidates = postings[0].ids;
+        int count = postings[0].size;
+        for (int i = 1; i < postings.length && count > 0; i++) {
+            int[] intersection = new int[count];
+            count = intersect(candidates, count, postings[i].ids, postings[i].size, intersection);
+            candidates = intersection;
+        }
+
+        return topByLength(current, candidates, count, limit);
+    }
+
+    public int size() {
+        return state.documents.size();
+    }
+
+    /**
+     * Reloads the whole index from the database. The id range is split into slices that are read and
+     * tokenized in parallel, each on its own connection, and the slices are merged in id order.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "product-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Also runs every {@code product.search.rebuild-interval}, for names changed directly in the database without a
+     * change version.
+     */
+    @Scheduled(fixedDelayString = "${product.search.rebuild-interval:PT6H}", initialDelayString = "${product.search.rebuild-interval:PT6H}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            writeLock.lock();
+            try {
+                pendingWrites = new ArrayList<>();
+            } finally {
+                writeLock.unlock();
+            }
+
+            // Everything below it has committed before the load starts reading.
+            long below = productChangeLog.visibleBelow();
+            State rebuilt = null;
+            try {
+                rebuilt = load();
+            } finally {
+                writeLock.lock();
+                try {
+                    if (rebuilt != null) {
+                        for (Consumer<State> write : pendingWrites) {
+                            write.accept(rebuilt);
+                        }
+                        state = rebuilt;
+                        syncedVersion = below - 1;
+                    }
+                    pendingWrites = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Re-reads the names of products changed since the last catch-up or rebuild, by this or any other node, and
+     * drops those deleted since. Stops below change versions still being written, like {@code GET /products/changes}.
+     */
+    @Scheduled(fixedDelayString = "${product.search.catch-up-interval:PT10S}", initialDelayString = "${product.search.catch-up-interval:PT10S}")
+    public void catchUp() {
+        // A running rebuild reads these changes anyway.
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long since = syncedVersion;
+            if (since < 0) {
+                return;
+            }
+
+            long below = productChangeLog.visibleBelow();
+            while (true) {
+                List<ProductChange> updated = productRepository.findChangesSince(since, below, Limit.of(rebuildPageSize));
+                List<ProductChange> deleted = productTombstoneRepository.findChangesSince(since, below, Limit.of(rebuildPageSize));
+                // A full page may stop in the middle of a version, so only versions below its last one are complete.
+                long complete = Math.min(completeBelow(updated), completeBelow(deleted));
+
+                Set<Integer> ids = new LinkedHashSet<>();
+                if (complete == since + 1) {
+                    // A single write changed more than a page of products.
+                    productRepository.findChangesAt(complete).forEach(change -> ids.add(change.getId()));
+                    productTombstoneRepository.findChangesAt(complete).forEach(change -> ids.add(change.getId()));
+                } else {
+                    long end = Math.min(complete, below);
+                    for (List<ProductChange> changes : List.of(updated, deleted)) {
+                        changes.stream().filter(change -> change.getChangeVersion() < end).forEach(change -> ids.add(change.getId()));
+                    }
+                }
+                reload(ids);
+
+                since = complete == since + 1 ? complete : Math.min(complete, below) - 1;
+                syncedVersion = since;
+                if (complete == Long.MAX_VALUE) {
+                    return;
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private long completeBelow(List<ProductChange> changes) {
+        return changes.size() == rebuildPageSize ? changes.get(changes.size() - 1).getChangeVersion() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Indexes the products with these ids as they are now, and removes those that no longer exist. Applying the
+     * current names makes the order of the changes irrelevant.
+     */
+    private void reload(Collection<Integer> ids) {
+        List<Integer> remaining = new ArrayList<>(ids);
+        for (int from = 0; from < remaining.size(); from += rebuildPageSize) {
+            List<Integer> chunk = remaining.subList(from, Math.min(from + rebuildPageSize, remaining.size()));
+            Map<Integer, String[]> changes = new LinkedHashMap<>();
+            chunk.forEach(id -> changes.put(id, null));
+            for (ProductResponse product : productRepository.findResponsesByIds(chunk)) {
+                changes.put(product.getId(), tokenize(product.getName()));
+            }
+            write(state -> state.apply(changes));
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Collects the changes of the current transaction, applied together once it commits; {@code null} tokens
+     * remove the product.
+     */
+    private void stage(int id, String[] tokens) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(state -> state.apply(Collections.singletonMap(id, tokens)));
+            return;
+        }
+        staged().put(id, tokens);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, String[]> staged() {
+        Map<Integer, String[]> staged = (Map<Integer, String[]>) TransactionSynchronizationManager.getResource(this);
+        if (staged != null) {
+            return staged;
+        }
+
+        Map<Integer, String[]> created = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(ProductSearchIndex.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(ProductSearchIndex.this, created);
+            }
+
+            @Override
+            public void afterCommit() {
+                write(state -> state.apply(created));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ProductSearchIndex.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(Consumer<State> write) {
+        writeLock.lock();
+        try {
+            write.accept(state);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private State load() {
+        int maxId = productRepository.findMaxId();
+        int threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        int slices = Math.max(1, Math.min(threads, maxId / rebuildPageSize + 1));
+        int sliceSize = maxId / slices + 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(slices);
+        try {
+            List<CompletableFuture<Slice>> futures = new ArrayList<>(slices);
+            for (int i = 0; i < slices; i++) {
+                int from = i * sliceSize;
+                int to = Math.min(maxId, from + sliceSize);
+                futures.add(CompletableFuture.supplyAsync(() -> loadSlice(from, to), executor));
+            }
+
+            State rebuilt = new State();
+            rebuilt.lengths = new int[maxId + 1];
+            Map<String, IntList> merged = new HashMap<>();
+            for (CompletableFuture<Slice> future : futures) {
+                Slice slice = future.join();
+                rebuilt.documents.putAll(slice.documents);
+                slice.documents.forEach((id, tokens) -> rebuilt.setLength(id, tokens.length));
+                slice.postings.forEach((term, ids) -> merged.computeIfAbsent(term, key -> new IntList()).addAll(ids));
+            }
+            merged.forEach((term, ids) -> rebuilt.postings.put(term, new Postings(ids.values, ids.size)));
+            return rebuilt;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Slice loadSlice(int after, int to) {
+        Slice slice = new Slice();
+        int cursor = after;
+        while (cursor < to) {
+            List<ProductResponse> page = productRepository.findResponsesBetween(cursor, to, Limit.of(rebuildPageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            for (ProductResponse product : page) {
+                String[] tokens = tokenize(product.getName());
+                slice.documents.put(product.getId(), tokens);
+                for (String token : tokens) {
+                    slice.postings.computeIfAbsent(token, key -> new IntList()).add(product.getId());
+                }
+            }
+            cursor = page.get(page.size() - 1).getId();
+        }
+        return slice;
+    }
+
+    private static int intersect(int[] candidates, int count, int[] postings, int length, int[] out) {
+        if ((long) count * 16 >= length) {
+            // Lists of similar size: a linear merge beats a binary search per candidate.
+            int size = 0;
+            for (int i = 0, j = 0; i < count && j < length; ) {
+                if (candidates[i] < postings[j]) {
+                    i++;
+                } else if (candidates[i] > postings[j]) {
+                    j++;
+                } else {
+                    out[size++] = candidates[i++];
+                    j++;
+                }
+            }
+            return size;
+        }
+
+        int size = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < length; i++) {
+            int position = Arrays.binarySearch(postings, from, length, candidates[i]);
+            if (position >= 0) {
+                out[size++] = candidates[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Keeps the {@code limit} shortest names in a bounded max-heap of (token count, id) pairs packed into
+     * longs, so ranking a large candidate set costs no allocation per candidate.
+     */
+    private static int[] topByLength(State state, int[] candidates, int count, int limit) {
+        long[] heap = new long[Math.min(limit, count)];
+        int size = 0;
+        int[] lengths = state.lengths;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            long key = ((long) (id < lengths.length ? lengths[id] : Integer.MAX_VALUE) << 32) | id;
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(heap, size++);
+            } else if (key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+
+        Arrays.sort(heap, 0, size);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = (int) heap[i];
+        }
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] >= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private static final class State {
+
+        final Map<String, Postings> postings = new ConcurrentHashMap<>();
+
+        final Map<Integer, String[]> documents = new ConcurrentHashMap<>();
+
+        /**
+         * Token count per product id, read while ranking so large candidate sets avoid a map lookup each.
+         */
+        volatile int[] lengths = NO_IDS;
+
+        /**
+         * Applies the changes of one transaction, {@code null} tokens removing the product. Only the terms a
+         * product gains or loses are touched, and each of them once however many products changed.
+         */
+        void apply(Map<Integer, String[]> changes) {
+            Map<String, IntList> added = new HashMap<>();
+            Map<String, Set<Integer>> removed = new HashMap<>();
+            changes.forEach((id, tokens) -> {
+                String[] previous = tokens != null ? documents.put(id, tokens) : documents.remove(id);
+                if (tokens != null) {
+                    setLength(id, tokens.length);
+                }
+                if (previous != null && tokens != null && Arrays.equals(previous, tokens)) {
+                    return;
+                }
+
+                List<String> kept = tokens != null ? Arrays.asList(tokens) : List.of();
+                List<String> had = previous != null ? Arrays.asList(previous) : List.of();
+                for (String token : had) {
+                    if (!kept.contains(token)) {
+                        removed.computeIfAbsent(token, key -> new HashSet<>()).add(id);
+                    }
+                }
+                for (String token : kept) {
+                    if (!had.contains(token)) {
+                        added.computeIfAbsent(token, key -> new IntList()).add(id);
+                    }
+                }
+            });
+
+            Set<String> terms = new HashSet<>(added.keySet());
+            terms.addAll(removed.keySet());
+            for (String term : terms) {
+                IntList ids = added.get(term);
+                int[] sorted = ids != null ? ids.toArray() : NO_IDS;
+                Arrays.sort(sorted);
+                Set<Integer> dropped = removed.getOrDefault(term, Set.of());
+                postings.compute(term, (key, current) -> (current != null ? current : Postings.EMPTY).update(sorted, dropped));
+            }
+        }
+
+        void setLength(int id, int length) {
+            int[] current = lengths;
+            if (id >= current.length) {
+                current = Arrays.copyOf(current, Math.max(id + 1, current.length + (current.length >> 1)));
+            }
+            current[id] = length;
+            lengths = current;
+        }
+    }
+
+    /**
+     * The sorted ids of one term: the first {@code size} entries of {@code ids}. Entries past the size are spare
+     * capacity that only the next {@link #update} writes to, so a reader holding this instance never sees them
+     * change.
+     */
+    private static final class Postings {
+
+        static final Postings EMPTY = new Postings(NO_IDS, 0);
+
+        final int[] ids;
+
+        final int size;
+
+        Postings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        /**
+         * @return the new list, or {@code null} if it is empty
+         */
+        Postings update(int[] added, Set<Integer> removed) {
+            if (removed.isEmpty() && (size == 0 || added[0] > ids[size - 1])) {
+                // New products only: append, growing the array by half when it is full.
+                int[] target = ids;
+                if (size + added.length > ids.length) {
+                    target = Arrays.copyOf(ids, Math.max(size + added.length, size + (size >> 1) + 4));
+                }
+                System.arraycopy(added, 0, target, size, added.length);
+                return new Postings(target, size + added.length);
+            }
+
+            int[] merged = new int[size + added.length];
+            int length = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < added.length) {
+                int next;
+                if (j == added.length || i < size && ids[i] < added[j]) {
+                    next = ids[i++];
+                } else if (i == size || added[j] < ids[i]) {
+                    next = added[j++];
+                } else {
+                    next = ids[i++];
+                    j++;
+                }
+                if (!removed.contains(next)) {
+                    merged[length++] = next;
+                }
+            }
+            return length == 0 ? null : new Postings(merged, length);
+        }
+    }
+
+    private static final class Slice {
+
+        final Map<String, IntList> postings = new HashMap<>();
+
+        final Map<Integer, String[]> documents = new HashMap<>();
+    }
+
+    private static final class IntList {
+
+        int[] values = new int[4];
+
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, values.length * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
@@ -1,27 +1,72 @@
 package com.restful.product_crud.service;
 
-import com.restful.product_crud.entity.Category;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.restful.product_crud.config.MetricsConfiguration;
 import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.BulkUpdateProductRequest;
 import com.restful.product_crud.model.CategoryResponse;
 import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.CursorPage;
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.model.PatchProductRequest;
+import com.restful.product_crud.model.ProductChange;
+import com.restful.product_crud.model.ProductChangesResponse;
+import com.restful.product_crud.model.ProductFilter;
 import com.restful.product_crud.model.ProductResponse;
 import com.restful.product_crud.model.UpdateProductRequest;
 import com.restful.product_crud.repository.CategoryRepository;
 import com.restful.product_crud.repository.ProductRepository;
+import com.restful.product_crud.repository.ProductTombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 public class ProductService {
 
     @Autowired
@@ -30,114 +75,409 @@ public class ProductService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
     @Autowired
     private Validator validator;
 
     @Autowired
     private ProductCodeGenerator productCodeGenerator;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryStats categoryStats;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int exportFetchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${product.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${product.batch.insert-chunk-size:500}")
+    private int insertChunkSize;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${product.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    private static final String INSERT_SQL = "INSERT INTO products (code, name, price, category_id, version, change_version) VALUES (?, ?, ?, ?, 0, ?)";
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Set<String> SORT_COLUMNS = Set.of("id", "price", "name");
+
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    /**
+     * Returns one keyset page of products, optionally filtered by category and price range and sorted by
+     * id, price or name ({@code -} prefix for descending). The cursor carries the sort column value and id
+     * of the last row, so every page is an index range scan no matter how deep the client pages.
+     */
     @Transactional
-    public List<ProductResponse> list() {
-        List<Product> products = productRepository.findAll();
-        List<ProductResponse> productResponses = new ArrayList<>();
+    public CursorPage<ProductResponse> list(ListProductRequest request) {
+        checkLimit(request.getLimit());
+        ProductFilter filter = filterOf(request);
 
-        for (Product product : products) {
-            ProductResponse.ProductResponseBuilder productResponseBuilder = ProductResponse.builder()
-                    .id(product.getId())
-                    .code(product.getCode())
-                    .name(product.getName())
-                    .price(product.getPrice());
+        // Fetch one extra row so we know whether another page exists without a count query.
+        return pageOf(productRepository.findResponses(filter, request.getLimit() + 1), request.getLimit(), filter);
+    }
 
-            if (product.getCategory() != null) {
-                productResponseBuilder.category(
-                        CategoryResponse.builder()
-                                .id(product.getCategory().getId())
-                                .name(product.getCategory().getName())
-                                .build()
-                );
-            }
+    static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    /**
+     * Validates the filter and sort of a list request and decodes its cursor. The limit is checked separately,
+     * since a streamed listing has none.
+     */
+    static ProductFilter filterOf(ListProductRequest request) {
+        if (request.getMinPrice() != null && request.getMaxPrice() != null && request.getMinPrice() > request.getMaxPrice()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice cannot be greater than maxPrice.");
+        }
+
+        String sort = request.getSort() == null || request.getSort().isBlank() ? "id" : request.getSort();
+        boolean descending = sort.startsWith("-");
+        String column = descending ? sort.substring(1) : sort;
+        if (!SORT_COLUMNS.contains(column)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort. Must be one of id, price or name, prefixed with - for descending.");
+        }
+
+        ProductFilter filter = ProductFilter.builder()
+                .categoryId(request.getCategoryId())
+                .minPrice(request.getMinPrice())
+                .maxPrice(request.getMaxPrice())
+                .sort(column)
+                .descending(descending)
+                .build();
+        if (request.getAfter() != null && !request.getAfter().isBlank()) {
+            decodeCursor(request.getAfter(), sort, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Cuts {@code limit + 1} fetched rows down to a page, with a cursor for the next one if the extra row was there.
+     */
+    static CursorPage<ProductResponse> pageOf(List<ProductResponse> productResponses, int limit, ProductFilter filter) {
+        boolean hasMore = productResponses.size() > limit;
+        if (hasMore) {
+            productResponses = productResponses.subList(0, limit);
+        }
+
+        String sort = (filter.isDescending() ? "-" : "") + filter.getSort();
+        String nextCursor = hasMore ? encodeCursor(sort, productResponses.get(productResponses.size() - 1)) : null;
 
-            productResponses.add(productResponseBuilder.build());
+        return CursorPage.<ProductResponse>builder().items(productResponses).nextCursor(nextCursor).build();
+    }
+
+    @Transactional
+    public void export(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ProductResponse.class);
+        OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+
+        try (Stream<ProductResponse> productResponses = productRepository.streamResponsesOrderById(exportFetchSize)) {
+            Iterator<ProductResponse> iterator = productResponses.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+
+                // Flush the first line immediately so clients see bytes before the whole export is done.
+                if (++written == 1 || written % EXPORT_FLUSH_INTERVAL == 0) {
+                    out.flush();
+                }
+            }
         }
 
-        return productResponses;
+        out.flush();
     }
 
     @Transactional
     public ProductResponse create(CreateProductRequest request) {
+        validate(request);
+        String code = assignCode(request);
+        CategoryResponse category = findCategory(request.getCategoryID());
+
+        Product product = new Product();
+        product.setName(request.getName());
+        product.setCode(code);
+        product.setPrice(request.getPrice());
+        if (category != null) {
+            product.setCategory(categoryRepository.getReferenceById(category.getId()));
+        }
+        product.setChangeVersion(productChangeLog.next());
+
+        productRepository.save(product);
+        productSearchIndex.index(product.getId(), product.getName());
+        categoryStats.add(categoryIdOf(product), product.getPrice());
+        catalogVersion.productsChanged();
+
+        return toResponse(product, category);
+    }
+
+    /**
+     * Runs the checks of {@link #create} and assigns the product code, without writing anything. Used by
+     * {@link ProductWriteQueue}, which inserts the returned request later.
+     */
+    public CreateProductRequest prepareCreate(CreateProductRequest request) {
+        validate(request);
+        String code = assignCode(request);
+        findCategory(request.getCategoryID());
+
+        return CreateProductRequest.builder()
+                .code(code)
+                .name(request.getName())
+                .price(request.getPrice())
+                .categoryID(request.getCategoryID())
+                .build();
+    }
+
+    private void validate(CreateProductRequest request) {
         Set<ConstraintViolation<CreateProductRequest>> constraintViolations = validator.validate(request);
         if (!constraintViolations.isEmpty()) {
             throw new ConstraintViolationException(constraintViolations);
         }
+    }
 
+    private String assignCode(CreateProductRequest request) {
         String code = request.getCode();
-        if (code != null && !code.isBlank()) {
-            if (!productCodeGenerator.validateCode(code)) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product code. Must follow this format PXXXXX (eg. P00001).");
+        if (code == null || code.isBlank()) {
+            return productCodeGenerator.generate();
+        }
+
+        if (!productCodeGenerator.validateCode(code)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product code. Must follow this format " + productCodeGenerator.getFormatDescription() + ".");
+        }
+
+        if (productRepository.existsByCode(code)) {
+            countCodeCollision();
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product code already exists.");
+        }
+
+        productCodeGenerator.claim(code);
+        return code;
+    }
+
+    private CategoryResponse findCategory(int categoryId) {
+        if (categoryId <= 0) {
+            return null;
+        }
+
+        return categorySnapshot.findOrLoad(categoryId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found."));
+    }
+
+    /**
+     * Creates many products in one transaction. Categories and clashing codes are resolved with one query
+     * each, generated codes are allocated in bulk, and rows are written with JDBC statement batching. Invalid
+     * items are reported individually and do not stop the rest of the batch.
+     */
+    @Transactional
+    public List<BatchItemResponse<ProductResponse>> createBatch(List<CreateProductRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch cannot be empty.");
+        }
+
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch too large. Maximum " + maxBatchSize + " products.");
+        }
+
+        String[] errors = new String[requests.size()];
+        Set<String> explicitCodes = new HashSet<>();
+        Set<Integer> categoryIds = new HashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            CreateProductRequest request = requests.get(i);
+            if (request == null) {
+                errors[i] = "Product cannot be empty.";
+                continue;
             }
 
-            if (productRepository.existsByCode(request.getCode())) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product code already exists.");
+            Set<ConstraintViolation<CreateProductRequest>> constraintViolations = validator.validate(request);
+            if (!constraintViolations.isEmpty()) {
+                errors[i] = new ConstraintViolationException(constraintViolations).getMessage();
+                continue;
+            }
+
+            String code = request.getCode();
+            if (code != null && !code.isBlank()) {
+                if (!productCodeGenerator.validateCode(code)) {
+                    errors[i] = "Invalid product code. Must follow this format " + productCodeGenerator.getFormatDescription() + ".";
+                    continue;
+                }
+
+                if (!explicitCodes.add(code)) {
+                    errors[i] = "Duplicate product code in batch.";
+                    continue;
+                }
+            }
+
+            if (request.getCategoryID() > 0) {
+                categoryIds.add(request.getCategoryID());
             }
-        } else {
-            code = productCodeGenerator.generate(1);
         }
 
-        Category category = null;
-        if (request.getCategoryID() > 0) {
-            category = categoryRepository.findById(request.getCategoryID())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found."));
+        Set<String> existingCodes = explicitCodes.isEmpty()
+                ? Set.of() : new HashSet<>(productRepository.findExistingCodes(explicitCodes));
+        Map<Integer, CategoryResponse> categories = new HashMap<>();
+        for (Integer categoryId : categoryIds) {
+            categorySnapshot.findOrLoad(categoryId).ifPresent(category -> categories.put(categoryId, category));
         }
 
-        Product product = new Product();
-        product.setName(request.getName());
-        product.setCode(code);
-        product.setPrice(request.getPrice());
-        if (category != null) {
-            product.setCategory(category);
+        int codesToGenerate = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+
+            CreateProductRequest request = requests.get(i);
+            String code = request.getCode();
+            boolean hasCode = code != null && !code.isBlank();
+            if (hasCode && existingCodes.contains(code)) {
+                errors[i] = "Product code already exists.";
+                countCodeCollision();
+            } else if (request.getCategoryID() > 0 && !categories.containsKey(request.getCategoryID())) {
+                errors[i] = "Category not found.";
+            } else if (!hasCode) {
+                codesToGenerate++;
+            }
         }
 
-        productRepository.save(product);
+        Iterator<String> generatedCodes = generateCodes(codesToGenerate, explicitCodes).iterator();
+        Product[] products = new Product[requests.size()];
+        List<Product> toInsert = new ArrayList<>();
 
-        ProductResponse.ProductResponseBuilder productResponseBuilder = ProductResponse.builder()
-                .id(product.getId())
-                .code(product.getCode())
-                .name(product.getName())
-                .price(product.getPrice());
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
 
-        if (category != null) {
-            productResponseBuilder.category(
-                    CategoryResponse.builder()
-                            .id(category.getId())
-                            .name(category.getName())
-                            .build()
-            );
+            CreateProductRequest request = requests.get(i);
+            String code = request.getCode();
+            if (code != null && !code.isBlank()) {
+                productCodeGenerator.claim(code);
+            } else {
+                code = generatedCodes.next();
+            }
+
+            Product product = new Product();
+            product.setName(request.getName());
+            product.setCode(code);
+            product.setPrice(request.getPrice());
+            if (request.getCategoryID() > 0) {
+                product.setCategory(categoryRepository.getReferenceById(request.getCategoryID()));
+            }
+
+            products[i] = product;
+            toInsert.add(product);
         }
 
-        return productResponseBuilder.build();
+        if (!toInsert.isEmpty()) {
+            long changeVersion = productChangeLog.next();
+            toInsert.forEach(product -> product.setChangeVersion(changeVersion));
+        }
+        Set<Product> rejected = insertBatch(toInsert);
+        if (!rejected.isEmpty()) {
+            // Lost a race with a concurrent write, e.g. the same code created elsewhere since it was checked.
+            for (int i = 0; i < products.length; i++) {
+                if (products[i] != null && rejected.contains(products[i])) {
+                    if (productRepository.existsByCode(products[i].getCode())) {
+                        errors[i] = "Product code already exists.";
+                        countCodeCollision();
+                    } else {
+                        errors[i] = "Product could not be saved: it conflicts with existing data.";
+                    }
+                    products[i] = null;
+                }
+            }
+            toInsert.removeAll(rejected);
+        }
+        for (Product product : toInsert) {
+            productSearchIndex.index(product.getId(), product.getName());
+            categoryStats.add(categoryIdOf(product), product.getPrice());
+        }
+        if (!toInsert.isEmpty()) {
+            catalogVersion.productsChanged();
+        }
+
+        List<BatchItemResponse<ProductResponse>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors[i] != null) {
+                results.add(BatchItemResponse.<ProductResponse>builder().index(i).status("failed").message(errors[i]).build());
+            } else {
+                results.add(BatchItemResponse.<ProductResponse>builder().index(i).status("success").data(toResponse(products[i], categories.get(requests.get(i).getCategoryID()))).build());
+            }
+        }
+
+        return results;
     }
 
-    @Transactional
-    public ProductResponse find(int id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found."));
+    /**
+     * Full-text search on product names through the in-memory index. Only the matching page is read from the
+     * database, with one query.
+     */
+    public List<ProductResponse> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query cannot be empty.");
+        }
 
-        ProductResponse.ProductResponseBuilder productResponseBuilder = ProductResponse.builder()
-                .id(product.getId())
-                .code(product.getCode())
-                .name(product.getName())
-                .price(product.getPrice());
-
-        if (product.getCategory() != null) {
-            productResponseBuilder.category(
-                    CategoryResponse.builder()
-                            .id(product.getCategory().getId())
-                            .name(product.getCategory().getName())
-                            .build()
-            );
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
         }
 
-        return productResponseBuilder.build();
+        int[] ids = productSearchIndex.search(query, limit);
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        List<Integer> idList = Arrays.stream(ids).boxed().toList();
+        Map<Integer, ProductResponse> products = new HashMap<>();
+        for (ProductResponse product : productRepository.findResponsesByIds(idList)) {
+            products.put(product.getId(), product);
+        }
+
+        List<ProductResponse> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            // Skip products deleted after the index was read.
+            ProductResponse product = products.get(id);
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return results;
+    }
+
+    public ProductResponse find(int id) {
+        return productCache.get(id, key -> productRepository.findResponseById(key)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.")));
     }
 
     @Transactional
@@ -153,19 +493,25 @@ public class ProductService {
         String code = request.getCode();
         if (code != null && !code.isBlank()) {
             if (!productCodeGenerator.validateCode(code)) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product code. Must follow this format PXXXXX (eg. P00001).");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product code. Must follow this format " + productCodeGenerator.getFormatDescription() + ".");
             }
 
             if (productRepository.existsByCodeAndIdNot(request.getCode(), id)) {
+                countCodeCollision();
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product code already exists.");
             }
+
+            productCodeGenerator.claim(code);
         } else {
             code = product.getCode();
         }
 
-        Category category = null;
+        Integer previousCategoryId = categoryIdOf(product);
+        Double previousPrice = product.getPrice();
+
+        CategoryResponse category = null;
         if (request.getCategoryID() > 0) {
-            category = categoryRepository.findById(request.getCategoryID())
+            category = categorySnapshot.findOrLoad(request.getCategoryID())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found."));
         }
 
@@ -173,34 +519,430 @@ public class ProductService {
         product.setName(request.getName());
         product.setPrice(request.getPrice());
         if (category != null) {
-            product.setCategory(category);
+            product.setCategory(categoryRepository.getReferenceById(category.getId()));
         }
+        product.setChangeVersion(productChangeLog.next());
 
-        productRepository.save(product);
+        // Flushed so the response carries the version the update was written with.
+        productRepository.saveAndFlush(product);
+        productCache.evict(id);
+        catalogVersion.productsChanged();
+        productSearchIndex.index(id, product.getName());
+        categoryStats.move(previousCategoryId, previousPrice, categoryIdOf(product), product.getPrice());
 
         ProductResponse.ProductResponseBuilder productResponseBuilder = ProductResponse.builder()
                 .id(product.getId())
                 .code(product.getCode())
                 .name(product.getName())
-                .price(product.getPrice());
+                .price(product.getPrice())
+                .version(product.getVersion());
 
         if (category != null) {
-            productResponseBuilder.category(
-                    CategoryResponse.builder()
-                            .id(category.getId())
-                            .name(category.getName())
-                            .build()
-            );
+            productResponseBuilder.category(category);
         }
 
         return productResponseBuilder.build();
     }
 
+    /**
+     * Changes the given fields of a product with a single {@code UPDATE}. The row is not loaded, the category stats
+     * are recounted off the request path instead; only a category change reads the previous category first, by
+     * primary key, since that category has to be recounted too. The unique key on {@code code} and the category
+     * foreign key are left to the database, and the category is only checked against the in-memory snapshot. Use
+     * {@link #find} to read the updated product.
+     */
+    @Transactional
+    public void patch(int id, PatchProductRequest request) {
+        Set<ConstraintViolation<PatchProductRequest>> constraintViolations = validator.validate(request);
+        if (!constraintViolations.isEmpty()) {
+            throw new ConstraintViolationException(constraintViolations);
+        }
+
+        if (request.getCode() == null && request.getName() == null && request.getPrice() == null && request.getCategoryID() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one field must be provided.");
+        }
+
+        String code = request.getCode();
+        if (code != null) {
+            if (!productCodeGenerator.validateCode(code)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product code. Must follow this format " + productCodeGenerator.getFormatDescription() + ".");
+            }
+            productCodeGenerator.claim(code);
+        }
+
+        if (request.getCategoryID() != null && categorySnapshot.findOrLoad(request.getCategoryID()).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found.");
+        }
+
+        // Nothing else knows which category the product leaves. Not locked: a move racing with this one marks the
+        // category it read as well, and the periodic reconcile covers what both missed.
+        Integer previousCategoryId = null;
+        if (request.getCategoryID() != null) {
+            previousCategoryId = productRepository.findCategoryId(id).orElse(null);
+        }
+
+        int updated;
+        try {
+            updated = productRepository.patch(id, code, request.getName(), request.getPrice(), request.getCategoryID(), productChangeLog.next());
+        } catch (DataIntegrityViolationException e) {
+            if (code == null) {
+                throw e;
+            }
+            countCodeCollision();
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product code already exists.");
+        }
+        if (updated == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
+
+        productCache.evict(id);
+        catalogVersion.productsChanged();
+        if (request.getName() != null) {
+            productSearchIndex.index(id, request.getName());
+        }
+        if (request.getCategoryID() != null) {
+            categoryStats.markDirty(Arrays.asList(previousCategoryId, request.getCategoryID()));
+        } else if (request.getPrice() != null) {
+            categoryStats.markProductsDirty(List.of(id));
+        }
+    }
+
+    /**
+     * Sets the same price and/or category on many products. Work is split into chunks of
+     * {@code product.bulk.chunk-size} ids, each updated by one statement in its own transaction, so row locks on
+     * {@code products} are never held for the whole operation.
+     */
+    public int bulkUpdate(BulkUpdateProductRequest request) {
+        if (request.getPrice() == null && request.getCategoryID() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Price or categoryID must be provided.");
+        }
+
+        if (request.getCategoryID() != null && categorySnapshot.findOrLoad(request.getCategoryID()).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found.");
+        }
+
+        Integer filterCategoryId = request.getFilterCategoryID();
+        return forEachChunk(request.getIds(), filterCategoryId, ids -> {
+            // The statements do not return the previous prices and categories, so the categories involved are
+            // recounted instead of adjusted. Only a move by ids has to read where the products were.
+            if (request.getCategoryID() != null) {
+                List<Integer> categoryIds = new ArrayList<>(filterCategoryId != null
+                        ? List.of(filterCategoryId)
+                        : productRepository.findCategoryIds(ids));
+                categoryIds.add(request.getCategoryID());
+                categoryStats.markDirty(categoryIds);
+            } else if (filterCategoryId != null) {
+                categoryStats.markDirty(List.of(filterCategoryId));
+            } else {
+                categoryStats.markProductsDirty(ids);
+            }
+
+            int chunkUpdated = productRepository.updatePriceAndCategory(ids, request.getPrice(), request.getCategoryID(), productChangeLog.next());
+            productCache.evictAll(ids);
+            catalogVersion.productsChanged();
+            return chunkUpdated;
+        });
+    }
+
+    /**
+     * Deletes products by id or by category, in chunks like {@link #bulkUpdate(BulkUpdateProductRequest)}.
+     */
+    public int bulkDelete(List<Integer> ids, Integer categoryId) {
+        return forEachChunk(ids, categoryId, chunk -> {
+            productChangeLog.recordDeletes(chunk, productChangeLog.next());
+            int chunkDeleted = productRepository.deleteByIds(chunk);
+            productCache.evictAll(chunk);
+            productSearchIndex.removeAll(chunk);
+            catalogVersion.productsChanged();
+            // By id, the categories are found from the tombstones.
+            if (categoryId != null) {
+                categoryStats.markDirty(List.of(categoryId));
+            } else {
+                categoryStats.markProductsDirty(chunk);
+            }
+            return chunkDeleted;
+        });
+    }
+
+    /**
+     * Moves every product of a category to another category, or out of any category when {@code targetCategoryId}
+     * is {@code null}. Runs in chunks like {@link #bulkUpdate(BulkUpdateProductRequest)}, without loading the
+     * products.
+     */
+    public int moveCategory(int categoryId, Integer targetCategoryId) {
+        return forEachChunk(null, categoryId, ids -> {
+            int chunkMoved = productRepository.updateCategory(ids, targetCategoryId, productChangeLog.next());
+            productCache.evictAll(ids);
+            catalogVersion.productsChanged();
+            categoryStats.markDirty(Arrays.asList(categoryId, targetCategoryId));
+            return chunkMoved;
+        });
+    }
+
+    /**
+     * Deletes a product with a single {@code DELETE}, after copying it into a tombstone. A missing product is
+     * reported as {@code 404} from the affected row count, which also rolls the tombstone back. The category stats
+     * are recounted off the request path from the category kept in the tombstone.
+     */
     @Transactional
     public void delete(int id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found."));
+        // Tombstones are copied from the row, so this has to come first.
+        productChangeLog.recordDeletes(List.of(id), productChangeLog.next());
+        if (productRepository.deleteRow(id) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
+
+        productCache.evict(id);
+        catalogVersion.productsChanged();
+        productSearchIndex.remove(id);
+        categoryStats.markProductsDirty(List.of(id));
+    }
 
-        productRepository.delete(product);
+    /**
+     * Products created, updated or deleted after change version {@code since}, in change version order, and the
+     * version to pass as {@code since} next time. A page never ends in the middle of one write's changes, so a
+     * single bulk chunk or batch can make it somewhat longer than {@code limit}.
+     */
+    @Transactional
+    public ProductChangesResponse changes(long since, int limit) {
+        checkLimit(limit);
+        if (since < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Since must not be negative.");
+        }
+
+        // A full sync starts from nothing, so it cannot miss a delete.
+        if (since > 0 && since < productChangeLog.horizon()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Changes since this version are no longer available. Reload the catalog.");
+        }
+
+        // Versions still being written may commit after later ones, so stop below the oldest of them.
+        long below = productChangeLog.visibleBelow();
+        List<ProductChange> updated = productRepository.findChangesSince(since, below, Limit.of(limit));
+        List<ProductChange> deleted = productTombstoneRepository.findChangesSince(since, below, Limit.of(limit));
+
+        // A full list may stop in the middle of a version, so only versions below its last one are complete.
+        long complete = Math.min(completeBelow(updated, limit), completeBelow(deleted, limit));
+
+        List<ProductChange> changes = Stream.concat(updated.stream(), deleted.stream())
+                .filter(change -> change.getChangeVersion() < complete)
+                .sorted(Comparator.comparingLong(ProductChange::getChangeVersion))
+                .toList();
+        boolean hasMore = complete != Long.MAX_VALUE;
+
+        if (changes.size() > limit) {
+            long cut = changes.get(limit).getChangeVersion();
+            List<ProductChange> before = changes.stream().filter(change -> change.getChangeVersion() < cut).toList();
+            changes = before.isEmpty() ? changes.stream().filter(change -> change.getChangeVersion() == cut).toList() : before;
+            hasMore = true;
+        } else if (changes.isEmpty() && hasMore) {
+            // A single write changed more than limit products.
+            changes = Stream.concat(productRepository.findChangesAt(complete).stream(), productTombstoneRepository.findChangesAt(complete).stream()).toList();
+        }
+
+        List<Integer> updatedIds = changes.stream().filter(change -> !change.isDeleted()).map(ProductChange::getId).toList();
+        Map<Integer, ProductResponse> products = new HashMap<>();
+        if (!updatedIds.isEmpty()) {
+            productRepository.findResponsesByIds(updatedIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        return ProductChangesResponse.builder()
+                .changed(updatedIds.stream().map(products::get).toList())
+                .deleted(changes.stream().filter(ProductChange::isDeleted).map(ProductChange::getId).toList())
+                .version(changes.isEmpty() ? since : changes.get(changes.size() - 1).getChangeVersion())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static long completeBelow(List<ProductChange> changes, int limit) {
+        return changes.size() == limit ? changes.get(limit - 1).getChangeVersion() : Long.MAX_VALUE;
+    }
+
+    private int forEachChunk(List<Integer> ids, Integer categoryId, ToIntFunction<List<Integer>> statement) {
+        if ((ids == null || ids.isEmpty()) == (categoryId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either ids or a category filter must be provided.");
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int affected = 0;
+
+        if (ids != null && !ids.isEmpty()) {
+            List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+            for (int from = 0; from < distinctIds.size(); from += bulkChunkSize) {
+                List<Integer> chunk = distinctIds.subList(from, Math.min(from + bulkChunkSize, distinctIds.size()));
+                affected += transactionTemplate.execute(status -> statement.applyAsInt(chunk));
+            }
+            return affected;
+        }
+
+        // Walk the category in id order so every chunk is an index range scan, and rows that an earlier chunk
+        // moved out of the category are never visited again.
+        int after = 0;
+        while (true) {
+            List<Integer> chunk = productRepository.findIdsByCategoryId(categoryId, after, Limit.of(bulkChunkSize));
+            if (chunk.isEmpty()) {
+                return affected;
+            }
+
+            affected += transactionTemplate.execute(status -> statement.applyAsInt(chunk));
+            after = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    /**
+     * Inserts the products in chunks, each under a savepoint. A chunk that hits a constraint is rolled back and
+     * retried row by row, so only the offending products are left out.
+     *
+     * @return the products that could not be inserted
+     */
+    private Set<Product> insertBatch(List<Product> products) {
+        Set<Product> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int from = 0; from < products.size(); from += insertChunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + insertChunkSize, products.size()));
+            if (insertChunk(chunk)) {
+                continue;
+            }
+
+            for (Product product : chunk) {
+                if (!insertChunk(List.of(product))) {
+                    rejected.add(product);
+                }
+            }
+        }
+        return rejected;
+    }
+
+    private boolean insertChunk(List<Product> chunk) {
+        // A JDBC savepoint on the transaction's connection, the JPA transaction manager does not offer them.
+        Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Product product = chunk.get(i);
+                            ps.setString(1, product.getCode());
+                            ps.setString(2, product.getName());
+                            ps.setDouble(3, product.getPrice());
+                            if (product.getCategory() != null) {
+                                ps.setInt(4, product.getCategory().getId());
+                            } else {
+                                ps.setNull(4, Types.INTEGER);
+                            }
+                            ps.setLong(5, product.getChangeVersion());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keyHolder
+            );
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            }
+        } catch (DataIntegrityViolationException e) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                connection.rollback(savepoint);
+                return null;
+            });
+            return false;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            connection.releaseSavepoint(savepoint);
+            return null;
+        });
+        return true;
+    }
+
+    /**
+     * Codes for the items of a batch that did not bring their own. A generated code can equal a code supplied by
+     * another item of the same batch (one the generator has not seen claimed yet), so those are skipped.
+     */
+    private List<String> generateCodes(int count, Set<String> explicitCodes) {
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            for (String code : productCodeGenerator.generate(count - codes.size())) {
+                if (!explicitCodes.contains(code)) {
+                    codes.add(code);
+                }
+            }
+        }
+        return codes;
+    }
+
+    private void countCodeCollision() {
+        meterRegistry.counter(ProductCodeGenerator.COLLISIONS_METRIC, "source", "client").increment();
+    }
+
+    private static Integer categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    static ProductResponse toResponse(Product product, CategoryResponse category) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .code(product.getCode())
+                .name(product.getName())
+                .price(product.getPrice())
+                .category(category)
+                .version(product.getVersion())
+                .build();
+    }
+
+    /**
+     * Id-sorted cursors are the plain id, so cursors handed out before sorting was added stay valid. Cursors for
+     * {@code -id} are {@code -id|<id>}, and the others {@code <sort>|<value>|<id>}, so a cursor is only ever
+     * accepted for the sort it was handed out for.
+     */
+    private static String encodeCursor(String sort, ProductResponse last) {
+        String cursor;
+        if ("id".equals(sort)) {
+            cursor = Integer.toString(last.getId());
+        } else if ("-id".equals(sort)) {
+            cursor = sort + "|" + last.getId();
+        } else {
+            String column = sort.startsWith("-") ? sort.substring(1) : sort;
+            String value = "name".equals(column) ? last.getName() : Double.toString(last.getPrice());
+            cursor = sort + "|" + value + "|" + last.getId();
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void decodeCursor(String cursor, String sort, ProductFilter filter) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if ("id".equals(sort) && decoded.indexOf('|') < 0) {
+                filter.setAfterId(Integer.parseInt(decoded));
+                return;
+            }
+
+            if ("-id".equals(sort)) {
+                if (!decoded.startsWith(sort + "|")) {
+                    throw new IllegalArgumentException();
+                }
+                filter.setAfterId(Integer.parseInt(decoded.substring(sort.length() + 1)));
+                return;
+            }
+
+            int valueStart = decoded.indexOf('|');
+            int valueEnd = decoded.lastIndexOf('|');
+            if (valueStart < 0 || valueStart == valueEnd || !decoded.substring(0, valueStart).equals(sort)) {
+                throw new IllegalArgumentException();
+            }
+
+            String value = decoded.substring(valueStart + 1, valueEnd);
+            filter.setAfterId(Integer.parseInt(decoded.substring(valueEnd + 1)));
+            filter.setAfterValue("name".equals(filter.getSort()) ? value : Double.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
     }
 }
@@ -0,0 +1,301 @@
+package com.restful.product_crud.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.QueuedProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind queue for {@code POST /products} with {@code Prefer: respond-async}. A product is validated and given
+ * its code up front by {@link ProductService#prepareCreate}, then queued, and a single writer thread inserts queued
+ * products through {@link ProductService#createBatch}, one transaction per batch.
+ * <p>
+ * The queue is bounded, so a burst beyond its capacity is rejected with 429 instead of growing the heap. On shutdown
+ * new products are refused and the writer drains everything already queued before the connection pool is closed.
+ * The outcome of each product can be looked up by its code while it is pending and for a while after the write.
+ */
+@Component
+public class ProductWriteQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductWriteQueue.class);
+
+    static final String PENDING = "pending";
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${product.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${product.write-behind.status-retention:1h}")
+    private Duration statusRetention;
+
+    @Value("${product.write-behind.status-maximum-size:100000}")
+    private long statusMaximumSize;
+
+    @Value("${product.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    @Value("${product.write-behind.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${product.write-behind.retry-backoff:200ms}")
+    private Duration retryBackoff;
+
+    private BlockingQueue<CreateProductRequest> queue;
+
+    private final Map<String, QueuedProductResponse> pending = new ConcurrentHashMap<>();
+
+    private Cache<String, QueuedProductResponse> completed;
+
+    private Counter rejected;
+
+    private volatile boolean accepting;
+
+    // Submissions that passed the accepting check but may not have reached the queue yet. The writer only exits
+    // once this is zero, so nothing is queued after it has finished draining.
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    private volatile Thread writer;
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        completed = Caffeine.newBuilder()
+                .maximumSize(statusMaximumSize)
+                .expireAfterWrite(statusRetention)
+                .build();
+
+        rejected = meterRegistry.counter("product.write.queue.rejected");
+        Gauge.builder("product.write.queue.size", queue, Collection::size)
+                .description("Products accepted with Prefer: respond-async and not written yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates the product, assigns its code and queues it. Validation errors are thrown right away, exactly as
+     * from {@link ProductService#create}, so only the insert itself is deferred.
+     */
+    public QueuedProductResponse submit(CreateProductRequest request) {
+        submitting.incrementAndGet();
+        try {
+            if (!accepting) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Queued writes are not accepted while shutting down.");
+            }
+
+            // Checked before a code is handed out, so a full queue does not burn codes. The offer below is what
+            // actually enforces the bound.
+            if (queue.remainingCapacity() == 0) {
+                throw queueFull();
+            }
+
+            CreateProductRequest prepared = productService.prepareCreate(request);
+            QueuedProductResponse status = QueuedProductResponse.builder().code(prepared.getCode()).status(PENDING).build();
+            pending.put(prepared.getCode(), status);
+            if (!queue.offer(prepared)) {
+                pending.remove(prepared.getCode());
+                throw queueFull();
+            }
+
+            return status;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    public QueuedProductResponse find(String code) {
+        // Pending first: the writer records the outcome before it removes the pending entry, so a product is
+        // always in one of the two.
+        QueuedProductResponse status = pending.get(code);
+        if (status == null) {
+            status = completed.getIfPresent(code);
+        }
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Queued product not found.");
+        }
+        return status;
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        writer = new Thread(this::drain, "product-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            thread.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Shutdown timed out with {} queued products not written", queue.size());
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    /**
+     * Below the web server's lifecycle phases, so the writer starts before requests are taken and only stops once
+     * the server has stopped taking them.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<CreateProductRequest> batch = new ArrayList<>(batchSize);
+        while (accepting || submitting.get() > 0 || !queue.isEmpty()) {
+            CreateProductRequest first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.warn("Writer interrupted with {} queued products not written", queue.size());
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes one batch. Transient failures, such as a lost deadlock or a dropped connection, are retried with
+     * backoff. A constraint violation the batch checks did not catch, eg. a code taken by a concurrent synchronous
+     * create, is narrowed down by splitting the batch in halves, so only the offending product fails.
+     */
+    private void write(List<CreateProductRequest> batch) {
+        List<BatchItemResponse<ProductResponse>> results;
+        try {
+            results = createWithRetries(batch);
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                int half = batch.size() / 2;
+                write(batch.subList(0, half));
+                write(batch.subList(half, batch.size()));
+                return;
+            }
+            log.warn("Queued product {} violates a constraint", batch.get(0).getCode(), e);
+            fail(batch, "Product could not be saved: it conflicts with existing data.");
+            return;
+        } catch (RuntimeException e) {
+            log.error("Writing {} queued products failed", batch.size(), e);
+            fail(batch, "Product could not be saved.");
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            BatchItemResponse<ProductResponse> result = results.get(i);
+            complete(QueuedProductResponse.builder()
+                    .code(batch.get(i).getCode())
+                    .status(result.getStatus())
+                    .message(result.getMessage())
+                    .data(result.getData())
+                    .build());
+        }
+    }
+
+    private List<BatchItemResponse<ProductResponse>> createWithRetries(List<CreateProductRequest> batch) {
+        long backoff = retryBackoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return productService.createBatch(batch);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Writing {} queued products failed, retrying in {}ms (attempt {} of {})", batch.size(), backoff, attempt, maxAttempts, e);
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying a queued write.", e);
+            }
+            backoff *= 2;
+        }
+    }
+
+    /**
+     * Failures where the same batch may well succeed a moment later: lock timeouts, lost deadlocks, and
+     * connections that were dropped or could not be obtained.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void fail(List<CreateProductRequest> batch, String message) {
+        for (CreateProductRequest request : batch) {
+            complete(QueuedProductResponse.builder().code(request.getCode()).status("failed").message(message).build());
+        }
+    }
+
+    private void complete(QueuedProductResponse status) {
+        completed.put(status.getCode(), status);
+        pending.remove(status.getCode());
+    }
+
+    private ResponseStatusException queueFull() {
+        rejected.increment();
+        return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Write queue is full. Retry later.");
+    }
+
+}
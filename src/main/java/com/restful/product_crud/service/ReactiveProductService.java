@@ -0,0 +1,66 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CursorPage;
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.model.ProductFilter;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.repository.ReactiveCategoryRepository;
+import com.restful.product_crud.repository.ReactiveProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Read side of {@link ProductService} and {@link CategoryService} on R2DBC, for the {@code reactive} profile.
+ * Validation, cursors and paging are shared with the servlet stack, so both answer the same request identically.
+ * <p>
+ * Reads go straight to the database: the product cache and category snapshot are kept current by the servlet
+ * write path, which does not run on this stack.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveProductService {
+
+    @Autowired
+    private ReactiveProductRepository reactiveProductRepository;
+
+    @Autowired
+    private ReactiveCategoryRepository reactiveCategoryRepository;
+
+    public Mono<CursorPage<ProductResponse>> list(ListProductRequest request) {
+        return Mono.defer(() -> {
+            ProductService.checkLimit(request.getLimit());
+            ProductFilter filter = ProductService.filterOf(request);
+
+            // Fetch one extra row so we know whether another page exists without a count query.
+            return reactiveProductRepository.findResponses(filter, request.getLimit() + 1)
+                    .collectList()
+                    .map(productResponses -> ProductService.pageOf(productResponses, request.getLimit(), filter));
+        });
+    }
+
+    /**
+     * Every product matching the filter, in sort order, from the cursor onwards. Rows are read only as fast as
+     * the subscriber consumes them.
+     */
+    public Flux<ProductResponse> stream(ListProductRequest request) {
+        return Flux.defer(() -> reactiveProductRepository.findResponses(ProductService.filterOf(request), null));
+    }
+
+    public Mono<ProductResponse> find(int id) {
+        return reactiveProductRepository.findResponseById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.")));
+    }
+
+    public Mono<List<CategoryResponse>> listCategories() {
+        return reactiveCategoryRepository.findAllResponses().collectList();
+    }
+
+}
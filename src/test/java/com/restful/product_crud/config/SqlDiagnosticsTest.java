@@ -0,0 +1,60 @@
+package com.restful.product_crud.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restful.product_crud.model.HibernateStatisticsResponse;
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "product.sql.slow-query-threshold=0ms")
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class SqlDiagnosticsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void testSlowQueryLogged(CapturedOutput output) {
+        productService.list(ListProductRequest.builder().categoryId(1).build());
+
+        assertTrue(output.getOut().contains("Slow query:"));
+        assertTrue(output.getOut().contains("from ProductService.list"));
+    }
+
+    @Test
+    void testStatisticsEndpoint() throws Exception {
+        mockMvc.perform(delete("/actuator/hibernate")).andExpect(status().isNoContent());
+        productService.list(ListProductRequest.builder().build());
+
+        mockMvc.perform(
+                get("/actuator/hibernate")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            HibernateStatisticsResponse response = objectMapper.readValue(result.getResponse().getContentAsString(), HibernateStatisticsResponse.class);
+            assertTrue(response.isEnabled());
+            assertEquals(1, response.getQueryExecutionCount());
+            assertEquals(1, response.getQueries().size());
+            assertEquals(1, response.getQueries().get(0).getExecutionCount());
+        });
+    }
+
+}
@@ -3,11 +3,16 @@ package com.restful.product_crud.controller;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restful.product_crud.entity.Category;
+import com.restful.product_crud.entity.Product;
 import com.restful.product_crud.model.CreateCategoryRequest;
 import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CategoryStatsResponse;
 import com.restful.product_crud.model.UpdateCategoryRequest;
 import com.restful.product_crud.model.WebResponse;
 import com.restful.product_crud.repository.CategoryRepository;
+import com.restful.product_crud.repository.ProductRepository;
+import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.CategorySnapshot;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,15 +38,24 @@ class CategoryControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private CategoryService categoryService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
     @BeforeEach
     void setUp() {
         categoryRepository.deleteAll();
@@ -52,6 +66,7 @@ class CategoryControllerTest {
         category.setId(1);
         category.setName("Category A");
         categoryRepository.save(category);
+        categorySnapshot.refresh(category.getId());
     }
 
 //    @AfterEach
@@ -75,6 +90,19 @@ class CategoryControllerTest {
         });
     }
 
+    @Test
+    void testStatsSuccess() throws Exception {
+        mockMvc.perform(
+                get("/categories/stats")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<CategoryStatsResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+    }
+
     @Test
     void testCreateSuccess() throws Exception {
         CreateCategoryRequest request = new CreateCategoryRequest();
@@ -126,6 +154,23 @@ class CategoryControllerTest {
         });
     }
 
+    @Test
+    void testFindNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/categories/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get("/categories/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified(),
+                content().string("")
+        );
+    }
+
     @Test
     void testFindFailedCategoryNotFound() throws Exception {
         int id = 2;
@@ -160,6 +205,15 @@ class CategoryControllerTest {
         });
     }
 
+    @Test
+    void testUpdateReturnsNewVersion() {
+        UpdateCategoryRequest request = new UpdateCategoryRequest();
+        request.setName("Category B");
+
+        // The version is not serialized, it is what the entity tag of the next GET is built from.
+        assertEquals(1, categoryService.update(1, request).getVersion());
+    }
+
     @Test
     void testUpdateFailedWithoutName() throws Exception {
         int id = 1;
@@ -208,4 +262,113 @@ class CategoryControllerTest {
             assertEquals("failed", response.getStatus());
         });
     }
+
+    @Test
+    void testDeleteFailedCategoryHasProducts() throws Exception {
+        int productId = createProduct("Product A", 1);
+
+        mockMvc.perform(
+                delete("/categories/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isConflict()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+
+        assertTrue(categoryRepository.existsById(1));
+        assertEquals(1, productRepository.findById(productId).orElseThrow().getCategory().getId());
+    }
+
+    @Test
+    void testDeleteDetachSuccess() throws Exception {
+        int productId = createProduct("Product A", 1);
+
+        mockMvc.perform(
+                delete("/categories/1")
+                        .param("mode", "detach")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+
+        assertFalse(categoryRepository.existsById(1));
+        assertNull(productRepository.findById(productId).orElseThrow().getCategory());
+    }
+
+    @Test
+    void testDeleteReassignSuccess() throws Exception {
+        Category target = new Category();
+        target.setName("Category B");
+        categoryRepository.save(target);
+        categorySnapshot.refresh(target.getId());
+        int first = createProduct("Product A", 1);
+        int second = createProduct("Product B", 1);
+
+        mockMvc.perform(
+                delete("/categories/1")
+                        .param("mode", "reassign")
+                        .param("reassignTo", String.valueOf(target.getId()))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+
+        assertFalse(categoryRepository.existsById(1));
+        assertEquals(target.getId(), productRepository.findById(first).orElseThrow().getCategory().getId());
+        assertEquals(target.getId(), productRepository.findById(second).orElseThrow().getCategory().getId());
+    }
+
+    @Test
+    void testDeleteReassignFailedTargetNotFound() throws Exception {
+        mockMvc.perform(
+                delete("/categories/1")
+                        .param("mode", "reassign")
+                        .param("reassignTo", "99")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+
+        assertTrue(categoryRepository.existsById(1));
+    }
+
+    @Test
+    void testDeleteFailedInvalidMode() throws Exception {
+        mockMvc.perform(
+                delete("/categories/1")
+                        .param("mode", "cascade")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+            assertEquals("Mode must be one of restrict, detach or reassign.", response.getMessage());
+        });
+    }
+
+    private int createProduct(String name, int categoryId) {
+        Product product = new Product();
+        product.setCode("P" + String.format("%05d", productRepository.count() + 1));
+        product.setName(name);
+        product.setPrice((double) 1000);
+        product.setCategory(categoryRepository.findById(categoryId).orElseThrow());
+        return productRepository.saveAndFlush(product).getId();
+    }
 }
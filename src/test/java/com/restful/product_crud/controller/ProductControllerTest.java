@@ -2,14 +2,36 @@ package com.restful.product_crud.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.restful.product_crud.config.BinaryFormatsConfiguration;
 import com.restful.product_crud.entity.Category;
 import com.restful.product_crud.entity.Product;
+import com.restful.product_crud.entity.ProductTombstone;
+import com.restful.product_crud.entity.Sequence;
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.BulkResultResponse;
+import com.restful.product_crud.model.BulkUpdateProductRequest;
+import com.restful.product_crud.model.CacheStatsResponse;
 import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.PatchProductRequest;
+import com.restful.product_crud.model.ProductChangesResponse;
 import com.restful.product_crud.model.ProductResponse;
 import com.restful.product_crud.model.UpdateProductRequest;
 import com.restful.product_crud.model.WebResponse;
 import com.restful.product_crud.repository.CategoryRepository;
 import com.restful.product_crud.repository.ProductRepository;
+import com.restful.product_crud.repository.ProductTombstoneRepository;
+import com.restful.product_crud.repository.SequenceRepository;
+import com.restful.product_crud.service.CatalogVersion;
+import com.restful.product_crud.service.CategorySnapshot;
+import com.restful.product_crud.service.ProductCache;
+import com.restful.product_crud.service.ProductChangeLog;
+import com.restful.product_crud.service.ProductCodeGenerator;
+import com.restful.product_crud.service.ProductSearchIndex;
+import com.restful.product_crud.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,11 +40,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +72,9 @@ class ProductControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ProductService productService;
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -47,8 +87,44 @@ class ProductControllerTest {
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private SequenceRepository sequenceRepository;
+
+    @Autowired
+    private ProductCodeGenerator productCodeGenerator;
+
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() {
+        productCache.clear();
+        // The fixtures are written through the repositories, so cached list responses are not retired on their own.
+        catalogVersion.productsChanged();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
 
@@ -59,6 +135,7 @@ class ProductControllerTest {
         category.setId(1);
         category.setName("Category A");
         categoryRepository.save(category);
+        categorySnapshot.refresh(category.getId());
 
         Product product = new Product();
         product.setId(1);
@@ -92,6 +169,256 @@ class ProductControllerTest {
         });
     }
 
+    @Test
+    void testListWithCursorSuccess() throws Exception {
+        Product product = new Product();
+        product.setCode("P00002");
+        product.setName("Product B");
+        product.setPrice((double) 2000);
+        productRepository.save(product);
+
+        String content = mockMvc.perform(
+                get("/products")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<List<ProductResponse>> firstPage = objectMapper.readValue(content, new TypeReference<>() {});
+        assertEquals(1, firstPage.getData().size());
+        assertEquals("P00001", firstPage.getData().get(0).getCode());
+        assertNotNull(firstPage.getNextCursor());
+
+        mockMvc.perform(
+                get("/products")
+                        .param("limit", "1")
+                        .param("after", firstPage.getNextCursor())
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(1, response.getData().size());
+            assertEquals("P00002", response.getData().get(0).getCode());
+            assertNull(response.getNextCursor());
+        });
+    }
+
+    @Test
+    void testListFilteredByCategoryAndPriceSuccess() throws Exception {
+        Category category = categoryRepository.findById(1).orElseThrow();
+        String[][] products = {{"P00002", "Product B", "1500"}, {"P00003", "Product C", "3000"}, {"P00004", "Product D", "2000"}};
+        for (String[] values : products) {
+            Product product = new Product();
+            product.setCode(values[0]);
+            product.setName(values[1]);
+            product.setPrice(Double.valueOf(values[2]));
+            product.setCategory(category);
+            productRepository.save(product);
+        }
+
+        Product uncategorized = new Product();
+        uncategorized.setCode("P00005");
+        uncategorized.setName("Product E");
+        uncategorized.setPrice((double) 1800);
+        productRepository.save(uncategorized);
+
+        mockMvc.perform(
+                get("/products")
+                        .param("categoryId", "1")
+                        .param("minPrice", "1200")
+                        .param("maxPrice", "2500")
+                        .param("sort", "-price")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(List.of("P00004", "P00002"), response.getData().stream().map(ProductResponse::getCode).toList());
+        });
+    }
+
+    @Test
+    void testListSortedByPriceWithCursorSuccess() throws Exception {
+        String[][] products = {{"P00002", "Product B", "500"}, {"P00003", "Product C", "1000"}, {"P00004", "Product D", "200"}};
+        for (String[] values : products) {
+            Product product = new Product();
+            product.setCode(values[0]);
+            product.setName(values[1]);
+            product.setPrice(Double.valueOf(values[2]));
+            productRepository.save(product);
+        }
+
+        List<String> codes = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/products")
+                    .param("limit", "1")
+                    .param("sort", "price")
+                    .accept(MediaType.APPLICATION_JSON);
+            if (cursor != null) {
+                request.param("after", cursor);
+            }
+
+            String content = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            WebResponse<List<ProductResponse>> page = objectMapper.readValue(content, new TypeReference<>() {});
+            page.getData().forEach(product -> codes.add(product.getCode()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Products with the same price come back in id order.
+        assertEquals(List.of("P00004", "P00002", "P00001", "P00003"), codes);
+    }
+
+    @Test
+    void testListFailedInvalidSort() throws Exception {
+        mockMvc.perform(
+                get("/products")
+                        .param("sort", "code")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+            assertEquals("Invalid sort. Must be one of id, price or name, prefixed with - for descending.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testListFailedCursorFromOtherSort() throws Exception {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString("price|1000.0|1".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(
+                get("/products")
+                        .param("sort", "name")
+                        .param("after", cursor)
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Invalid cursor.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testListFailedIdCursorForDescendingSort() throws Exception {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString("1".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(
+                get("/products")
+                        .param("sort", "-id")
+                        .param("after", cursor)
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Invalid cursor.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testListFailedInvalidCursor() throws Exception {
+        mockMvc.perform(
+                get("/products")
+                        .param("after", "not a cursor")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+            assertEquals("Invalid cursor.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testListFailedInvalidLimit() throws Exception {
+        mockMvc.perform(
+                get("/products")
+                        .param("limit", "0")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+    }
+
+    @Test
+    void testSearchSuccess() throws Exception {
+        mockMvc.perform(
+                get("/products/search")
+                        .param("q", "no such product")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+            assertTrue(response.getData().isEmpty());
+        });
+    }
+
+    @Test
+    void testSearchCatchesUpWithOtherWriters() {
+        productSearchIndex.rebuild();
+
+        // Written like another node would: with a change version, but without telling this node's index.
+        jdbcTemplate.update("INSERT INTO products (code, name, price, version, change_version) VALUES (?, ?, ?, 0, ?)",
+                "P00003", "Elsewhere Lamp", 10.0, productChangeLog.next());
+        int id = jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Integer.class, "P00003");
+        assertArrayEquals(new int[0], productSearchIndex.search("elsewhere", 10));
+
+        productSearchIndex.catchUp();
+        assertArrayEquals(new int[]{id}, productSearchIndex.search("elsewhere lamp", 10));
+
+        productChangeLog.recordDeletes(List.of(id), productChangeLog.next());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", id);
+        productSearchIndex.catchUp();
+        assertArrayEquals(new int[0], productSearchIndex.search("elsewhere", 10));
+    }
+
+    @Test
+    void testSearchFailedWithoutQuery() throws Exception {
+        mockMvc.perform(
+                get("/products/search")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+            assertEquals("Query cannot be empty.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testExportSuccess() throws Exception {
+        Product product = new Product();
+        product.setCode("P00002");
+        product.setName("Product B");
+        product.setPrice((double) 2000);
+        productRepository.save(product);
+
+        mockMvc.perform(
+                get("/products/export")
+                        .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpectAll(
+                status().isOk(),
+                content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        ).andDo(result -> {
+            String[] lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(2, lines.length);
+            assertEquals("P00001", objectMapper.readValue(lines[0], ProductResponse.class).getCode());
+            assertEquals("P00002", objectMapper.readValue(lines[1], ProductResponse.class).getCode());
+        });
+    }
+
     @Test
     void testCreateSuccess() throws Exception {
         CreateProductRequest request = new CreateProductRequest();
@@ -133,6 +460,47 @@ class ProductControllerTest {
         });
     }
 
+    @Test
+    void testCreateIdempotentReplay() throws Exception {
+        CreateProductRequest request = new CreateProductRequest();
+        request.setName("Product B");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+        String idempotencyKey = UUID.randomUUID().toString();
+        long count = productRepository.count();
+
+        ProductResponse first = createIdempotent(request, idempotencyKey);
+        ProductResponse replayed = createIdempotent(request, idempotencyKey);
+
+        assertEquals(first.getId(), replayed.getId());
+        assertEquals(first.getCode(), replayed.getCode());
+        assertEquals(count + 1, productRepository.count());
+    }
+
+    @Test
+    void testCreateIdempotencyKeyReusedForDifferentRequest() throws Exception {
+        CreateProductRequest request = new CreateProductRequest();
+        request.setName("Product B");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+        String idempotencyKey = UUID.randomUUID().toString();
+        createIdempotent(request, idempotencyKey);
+
+        request.setName("Product C");
+        mockMvc.perform(
+                post("/products")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isUnprocessableEntity()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+    }
+
     @Test
     void testCreateSuccessWithoutCode() throws Exception {
         CreateProductRequest request = new CreateProductRequest();
@@ -219,6 +587,27 @@ class ProductControllerTest {
         });
     }
 
+    @Test
+    void testCreateRecordsMetrics() throws Exception {
+        double creates = serviceCalls("create");
+        double collisions = meterRegistry.counter("product.code.collisions", "source", "client").count();
+
+        for (String code : List.of("P00002", "P00001")) {
+            CreateProductRequest request = CreateProductRequest.builder().name("Product B").code(code).price((double) 1000).build();
+            mockMvc.perform(
+                    post("/products")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+            );
+        }
+
+        assertEquals(creates + 2, serviceCalls("create"));
+        assertEquals(collisions + 1, meterRegistry.counter("product.code.collisions", "source", "client").count());
+        assertFalse(meterRegistry.find("spring.data.repository.invocations").tag("repository", "ProductRepository").timers().isEmpty());
+        assertNotNull(meterRegistry.find("hikaricp.connections.max").gauge());
+    }
+
     @Test
     void testCreateFailedWithoutName() throws Exception {
         CreateProductRequest request = new CreateProductRequest();
@@ -262,51 +651,111 @@ class ProductControllerTest {
     }
 
     @Test
-    void testFindSuccess() throws Exception {
-        int id = 1;
+    void testCreateBatchReportsItemErrors() throws Exception {
+        List<CreateProductRequest> requests = List.of(
+                CreateProductRequest.builder().name("Product B").code("P00002").price((double) 1000).categoryID(1).build(),
+                CreateProductRequest.builder().name("Product C").price((double) 1000).build(),
+                CreateProductRequest.builder().name("Product D").code("P00001").price((double) 1000).build(),
+                CreateProductRequest.builder().name("Product E").price((double) 1000).categoryID(2).build(),
+                CreateProductRequest.builder().price((double) 1000).build()
+        );
 
         mockMvc.perform(
-                get("/products/" + id)
+                post("/products/batch")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests))
         ).andExpectAll(
                 status().isOk()
         ).andDo(result -> {
-            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            WebResponse<List<BatchItemResponse<ProductResponse>>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
             assertEquals("success", response.getStatus());
+            assertEquals("2 of 5 products created.", response.getMessage());
+
+            List<BatchItemResponse<ProductResponse>> items = response.getData();
+            assertEquals("success", items.get(0).getStatus());
+            assertEquals("P00002", items.get(0).getData().getCode());
+            assertEquals("Category A", items.get(0).getData().getCategory().getName());
+            assertEquals("success", items.get(1).getStatus());
+            assertTrue(items.get(1).getData().getId() > 0);
+            assertEquals("Product code already exists.", items.get(2).getMessage());
+            assertEquals("Category not found.", items.get(3).getMessage());
+            assertEquals("name: Name cannot be empty.", items.get(4).getMessage());
         });
+
+        assertEquals(3, productRepository.count());
     }
 
     @Test
-    void testFindFailedProductNotFound() throws Exception {
-        int id = 2;
+    void testCreateBatchSkipsGeneratedCodeTakenInBatch() throws Exception {
+        // The code the generator would most likely hand out next, supplied explicitly by the first item.
+        String taken = productCodeGenerator.generate();
+        String explicit = String.format("P%05d", Integer.parseInt(taken.substring(1)) + 1);
+        List<CreateProductRequest> requests = List.of(
+                CreateProductRequest.builder().name("Product B").code(explicit).price((double) 1000).build(),
+                CreateProductRequest.builder().name("Product C").price((double) 1000).build()
+        );
 
         mockMvc.perform(
-                get("/products/" + id)
+                post("/products/batch")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests))
         ).andExpectAll(
-                status().isNotFound()
+                status().isOk()
         ).andDo(result -> {
-            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
-            assertEquals("failed", response.getStatus());
+            WebResponse<List<BatchItemResponse<ProductResponse>>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("2 of 2 products created.", response.getMessage());
+            assertEquals(explicit, response.getData().get(0).getData().getCode());
+            assertNotEquals(explicit, response.getData().get(1).getData().getCode());
         });
     }
 
     @Test
-    void testUpdateSuccess() throws Exception {
+    void testCreateBatchReportsConstraintViolationPerItem() throws Exception {
+        // A category deleted by another node after this one loaded it: the insert fails on the foreign key.
+        TransactionTemplate committed = new TransactionTemplate(transactionManager);
+        committed.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        committed.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO categories (id, name, version) VALUES (900, 'Category Gone', 0)"));
+        categorySnapshot.reload();
+        committed.executeWithoutResult(status -> jdbcTemplate.update("DELETE FROM categories WHERE id = 900"));
+
+        List<CreateProductRequest> requests = List.of(
+                CreateProductRequest.builder().name("Product B").price((double) 1000).categoryID(1).build(),
+                CreateProductRequest.builder().name("Product C").price((double) 1000).categoryID(900).build(),
+                CreateProductRequest.builder().name("Product D").price((double) 1000).build()
+        );
+
+        try {
+            mockMvc.perform(
+                    post("/products/batch")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(requests))
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                WebResponse<List<BatchItemResponse<ProductResponse>>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+                assertEquals("2 of 3 products created.", response.getMessage());
+                assertEquals("success", response.getData().get(0).getStatus());
+                assertEquals("Product could not be saved: it conflicts with existing data.", response.getData().get(1).getMessage());
+                assertEquals("success", response.getData().get(2).getStatus());
+            });
+        } finally {
+            categorySnapshot.reload();
+        }
+
+        assertEquals(3, productRepository.count());
+    }
+
+    @Test
+    void testFindSuccess() throws Exception {
         int id = 1;
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setCode("P00001");
-        request.setName("Product A (Updated)");
-        request.setPrice((double) 1000);
-        request.setCategoryID(1);
 
         mockMvc.perform(
-                put("/products/" + id)
+                get("/products/" + id)
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
         ).andExpectAll(
                 status().isOk()
         ).andDo(result -> {
@@ -316,58 +765,406 @@ class ProductControllerTest {
     }
 
     @Test
-    void testUpdateSuccessWithoutCategory() throws Exception {
-        int id = 1;
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName("Product A");
-        request.setCode("P00001");
-        request.setPrice((double) 1000);
-
+    void testFindReturnsCategory() throws Exception {
         mockMvc.perform(
-                put("/products/" + id)
+                get("/products/1")
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
         ).andExpectAll(
                 status().isOk()
         ).andDo(result -> {
             WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
-            assertEquals("success", response.getStatus());
+            assertEquals("Product A", response.getData().getName());
+            assertEquals(1000, response.getData().getPrice());
+            assertEquals(1, response.getData().getCategory().getId());
+            assertEquals("Category A", response.getData().getCategory().getName());
         });
     }
 
     @Test
-    void testUpdateSuccessWithoutCode() throws Exception {
-        int id = 1;
+    void testFindIsCachedUntilUpdate() throws Exception {
+        long hits = productCache.stats().getHitCount();
+
+        mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        assertEquals(hits + 1, productCache.stats().getHitCount());
+
         UpdateProductRequest request = new UpdateProductRequest();
-        request.setName("Product A");
+        request.setName("Product A (Updated)");
         request.setPrice((double) 1000);
         request.setCategoryID(1);
 
         mockMvc.perform(
-                put("/products/" + id)
+                put("/products/1")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk());
+
+        mockMvc.perform(
+                get("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
         ).andExpectAll(
                 status().isOk()
         ).andDo(result -> {
             WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
-            assertEquals("success", response.getStatus());
+            assertEquals("Product A (Updated)", response.getData().getName());
         });
     }
 
     @Test
-    void testUpdateFailedCategoryNotFound() throws Exception {
-        int id = 1;
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName("Product B");
-        request.setCode("P00002");
-        request.setPrice((double) 1000);
-        request.setCategoryID(2);
+    void testFindNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
 
         mockMvc.perform(
-                put("/products/" + id)
+                get("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified(),
+                content().string("")
+        );
+    }
+
+    @Test
+    void testFindETagChangesAfterUpdate() throws Exception {
+        String etag = mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader("ETag");
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Product A (Updated)");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+
+        mockMvc.perform(
+                put("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk());
+
+        mockMvc.perform(
+                get("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            assertNotEquals(etag, result.getResponse().getHeader("ETag"));
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Product A (Updated)", response.getData().getName());
+        });
+    }
+
+    @Test
+    void testListNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("If-None-Match", etag)
+        ).andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testListGzipped() throws Exception {
+        for (int i = 2; i <= 30; i++) {
+            Product product = new Product();
+            product.setCode(String.format("P%05d", i));
+            product.setName("Product " + i);
+            product.setPrice((double) 1000);
+            productRepository.save(product);
+        }
+        catalogVersion.productsChanged();
+
+        MockHttpServletResponse identity = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpectAll(
+                        status().isOk(),
+                        header().doesNotExist("Content-Encoding"),
+                        header().string("Vary", "Accept, Accept-Encoding")
+                ).andReturn().getResponse();
+
+        MockHttpServletResponse gzipped = mockMvc.perform(
+                get("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8")
+        ).andExpectAll(
+                status().isOk(),
+                header().string("Content-Encoding", "gzip"),
+                header().string("Vary", "Accept, Accept-Encoding")
+        ).andReturn().getResponse();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertArrayEquals(identity.getContentAsByteArray(), in.readAllBytes());
+        }
+
+        // Different bytes, so different strong tags.
+        assertNotEquals(identity.getHeader("ETag"), gzipped.getHeader("ETag"));
+        mockMvc.perform(
+                get("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", identity.getHeader("ETag"))
+        ).andExpect(status().isOk());
+        mockMvc.perform(
+                get("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", gzipped.getHeader("ETag"))
+        ).andExpect(status().isNotModified());
+
+        mockMvc.perform(
+                get("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Accept-Encoding", "gzip;q=0")
+        ).andExpect(header().doesNotExist("Content-Encoding"));
+    }
+
+    @Test
+    void testListRebuiltAfterCreate() throws Exception {
+        mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(1));
+
+        CreateProductRequest request = new CreateProductRequest("P00002", "Product B", (double) 1000, 1);
+        mockMvc.perform(
+                post("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk());
+
+        mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(2));
+    }
+
+    @Test
+    void testListCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_CBOR))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_CBOR)
+                ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<List<ProductResponse>> response = new ObjectMapper(new CBORFactory()).readValue(body, new TypeReference<>() {});
+        assertEquals("success", response.getStatus());
+        assertEquals(1, response.getData().size());
+        assertEquals("P00001", response.getData().get(0).getCode());
+    }
+
+    @Test
+    void testETagPerFormat() throws Exception {
+        for (String path : List.of("/products/1", "/products")) {
+            String json = mockMvc.perform(get(path).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(header().string("Vary", containsString("Accept")))
+                    .andReturn().getResponse().getHeader("ETag");
+            String cbor = mockMvc.perform(get(path).accept(MediaType.APPLICATION_CBOR))
+                    .andReturn().getResponse().getHeader("ETag");
+            assertNotEquals(json, cbor);
+
+            mockMvc.perform(
+                    get(path)
+                            .accept(MediaType.APPLICATION_CBOR)
+                            .header("If-None-Match", json)
+            ).andExpectAll(
+                    status().isOk(),
+                    content().contentType(MediaType.APPLICATION_CBOR)
+            );
+        }
+    }
+
+    @Test
+    void testListPrefersAcceptedFormat() throws Exception {
+        mockMvc.perform(
+                get("/products")
+                        .header("Accept", "application/json;q=0.5, " + BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE)
+        ).andExpectAll(
+                status().isOk(),
+                content().contentType(BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE)
+        );
+
+        mockMvc.perform(
+                get("/products")
+                        .header("Accept", "application/x-protobuf")
+        ).andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void testCreateSmile() throws Exception {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        CreateProductRequest request = new CreateProductRequest("P00002", "Product B", (double) 1000, 1);
+
+        byte[] body = mockMvc.perform(
+                post("/products")
+                        .accept(BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE)
+                        .contentType(BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE)
+                        .content(smileMapper.writeValueAsBytes(request))
+        ).andExpectAll(
+                status().isOk(),
+                content().contentType(BinaryFormatsConfiguration.APPLICATION_SMILE_VALUE)
+        ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<ProductResponse> response = smileMapper.readValue(body, new TypeReference<>() {});
+        assertEquals("success", response.getStatus());
+        assertEquals("P00002", response.getData().getCode());
+        assertEquals("Category A", response.getData().getCategory().getName());
+    }
+
+    @Test
+    void testFindCborError() throws Exception {
+        byte[] body = mockMvc.perform(get("/products/9999").accept(MediaType.APPLICATION_CBOR))
+                .andExpectAll(
+                        status().isNotFound(),
+                        content().contentType(MediaType.APPLICATION_CBOR)
+                ).andReturn().getResponse().getContentAsByteArray();
+
+        WebResponse<String> response = new ObjectMapper(new CBORFactory()).readValue(body, new TypeReference<>() {});
+        assertEquals("failed", response.getStatus());
+    }
+
+    @Test
+    void testFindReflectsCategoryRename() throws Exception {
+        mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+
+        mockMvc.perform(
+                put("/categories/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Category A (Renamed)\"}")
+        ).andExpect(status().isOk());
+
+        mockMvc.perform(
+                get("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Category A (Renamed)", response.getData().getCategory().getName());
+        });
+    }
+
+    @Test
+    void testCacheStatsSuccess() throws Exception {
+        mockMvc.perform(
+                get("/products/cache/stats")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<CacheStatsResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+            assertNotNull(response.getData());
+        });
+    }
+
+    @Test
+    void testFindFailedProductNotFound() throws Exception {
+        int id = 2;
+
+        mockMvc.perform(
+                get("/products/" + id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+    }
+
+    @Test
+    void testUpdateSuccess() throws Exception {
+        int id = 1;
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setCode("P00001");
+        request.setName("Product A (Updated)");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+
+        mockMvc.perform(
+                put("/products/" + id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+    }
+
+    @Test
+    void testUpdateReturnsNewVersion() {
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Product A (Updated)");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+
+        // The version is not serialized, it is what the entity tag of the next GET is built from.
+        assertEquals(1, productService.update(1, request).getVersion());
+    }
+
+    @Test
+    void testUpdateSuccessWithoutCategory() throws Exception {
+        int id = 1;
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Product A");
+        request.setCode("P00001");
+        request.setPrice((double) 1000);
+
+        mockMvc.perform(
+                put("/products/" + id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+    }
+
+    @Test
+    void testUpdateSuccessWithoutCode() throws Exception {
+        int id = 1;
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Product A");
+        request.setPrice((double) 1000);
+        request.setCategoryID(1);
+
+        mockMvc.perform(
+                put("/products/" + id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+        });
+    }
+
+    @Test
+    void testUpdateFailedCategoryNotFound() throws Exception {
+        int id = 1;
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Product B");
+        request.setCode("P00002");
+        request.setPrice((double) 1000);
+        request.setCategoryID(2);
+
+        mockMvc.perform(
+                put("/products/" + id)
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request))
@@ -500,6 +1297,343 @@ class ProductControllerTest {
         });
     }
 
+    @Test
+    void testPatchPriceSuccess() throws Exception {
+        PatchProductRequest request = PatchProductRequest.builder().price((double) 1500).build();
+
+        mockMvc.perform(
+                patch("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+            assertEquals(1500, response.getData().getPrice());
+            assertEquals("Product A", response.getData().getName());
+            assertEquals("P00001", response.getData().getCode());
+            assertEquals("Category A", response.getData().getCategory().getName());
+        });
+
+        assertEquals(1, productRepository.findById(1).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testPatchReturnMinimal() throws Exception {
+        PatchProductRequest request = PatchProductRequest.builder().name("Product A (Patched)").build();
+
+        mockMvc.perform(
+                patch("/products/1")
+                        .header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isNoContent(),
+                header().string("Preference-Applied", "return=minimal")
+        );
+
+        Product product = productRepository.findById(1).orElseThrow();
+        assertEquals("Product A (Patched)", product.getName());
+        assertEquals(1000, product.getPrice());
+    }
+
+    @Test
+    void testPatchFailedCodeAlreadyUsed() throws Exception {
+        Product product = new Product();
+        product.setCode("P00002");
+        product.setName("Product B");
+        product.setPrice((double) 2000);
+        productRepository.save(product);
+
+        PatchProductRequest request = PatchProductRequest.builder().code("P00002").build();
+
+        mockMvc.perform(
+                patch("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("Product code already exists.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testPatchFailedCategoryNotFound() throws Exception {
+        PatchProductRequest request = PatchProductRequest.builder().categoryID(2).build();
+
+        mockMvc.perform(
+                patch("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void testPatchFailedProductNotFound() throws Exception {
+        PatchProductRequest request = PatchProductRequest.builder().price((double) 1500).build();
+
+        mockMvc.perform(
+                patch("/products/2")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void testPatchFailedWithoutFields() throws Exception {
+        mockMvc.perform(
+                patch("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+
+        mockMvc.perform(
+                patch("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \" \"}")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void testBulkUpdateSuccess() throws Exception {
+        Product product = new Product();
+        product.setCode("P00002");
+        product.setName("Product B");
+        product.setPrice((double) 2000);
+        productRepository.save(product);
+
+        BulkUpdateProductRequest request = new BulkUpdateProductRequest();
+        request.setIds(List.of(1, product.getId()));
+        request.setPrice((double) 500);
+
+        mockMvc.perform(
+                put("/products/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("success", response.getStatus());
+            assertEquals(2, response.getData().getAffected());
+        });
+
+        assertEquals(500, productRepository.findById(1).orElseThrow().getPrice());
+        assertEquals(500, productRepository.findById(product.getId()).orElseThrow().getPrice());
+    }
+
+    @Test
+    void testBulkUpdateByCategorySuccess() throws Exception {
+        BulkUpdateProductRequest request = new BulkUpdateProductRequest();
+        request.setFilterCategoryID(1);
+        request.setPrice((double) 750);
+
+        mockMvc.perform(
+                put("/products/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(1, response.getData().getAffected());
+        });
+
+        assertEquals(750, productRepository.findById(1).orElseThrow().getPrice());
+    }
+
+    @Test
+    void testBulkUpdateFailedWithoutChanges() throws Exception {
+        BulkUpdateProductRequest request = new BulkUpdateProductRequest();
+        request.setIds(List.of(1));
+
+        mockMvc.perform(
+                put("/products/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+            assertEquals("Price or categoryID must be provided.", response.getMessage());
+        });
+    }
+
+    @Test
+    void testBulkDeleteByIdsSuccess() throws Exception {
+        mockMvc.perform(
+                delete("/products")
+                        .param("ids", "1", "2")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(1, response.getData().getAffected());
+        });
+
+        assertEquals(0, productRepository.count());
+    }
+
+    @Test
+    void testBulkDeleteByCategorySuccess() throws Exception {
+        mockMvc.perform(
+                delete("/products")
+                        .param("categoryId", "1")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(1, response.getData().getAffected());
+        });
+
+        assertEquals(0, productRepository.count());
+    }
+
+    @Test
+    void testBulkDeleteFailedWithoutFilter() throws Exception {
+        mockMvc.perform(
+                delete("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<BulkResultResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals("failed", response.getStatus());
+        });
+    }
+
+    @Test
+    void testChangesSince() throws Exception {
+        long since = currentChangeVersion();
+
+        CreateProductRequest createRequest = new CreateProductRequest("P00002", "Product B", (double) 1000, 1);
+        mockMvc.perform(
+                post("/products")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest))
+        ).andExpect(status().isOk());
+
+        UpdateProductRequest updateRequest = new UpdateProductRequest("P00001", "Product A (Updated)", (double) 1000, 1);
+        mockMvc.perform(
+                put("/products/1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequest))
+        ).andExpect(status().isOk());
+
+        ProductChangesResponse updated = changes(since, 1000);
+        assertEquals(List.of("P00002", "P00001"), updated.getChanged().stream().map(ProductResponse::getCode).toList());
+        assertEquals("Product A (Updated)", updated.getChanged().get(1).getName());
+        assertTrue(updated.getDeleted().isEmpty());
+        assertFalse(updated.isHasMore());
+
+        mockMvc.perform(delete("/products/1").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        ProductChangesResponse deleted = changes(updated.getVersion(), 1000);
+        assertTrue(deleted.getChanged().isEmpty());
+        assertEquals(List.of(1), deleted.getDeleted());
+        assertTrue(deleted.getVersion() > updated.getVersion());
+
+        ProductChangesResponse unchanged = changes(deleted.getVersion(), 1000);
+        assertTrue(unchanged.getChanged().isEmpty());
+        assertTrue(unchanged.getDeleted().isEmpty());
+        assertEquals(deleted.getVersion(), unchanged.getVersion());
+    }
+
+    @Test
+    void testChangesPageKeepsWriteTogether() throws Exception {
+        Product product = new Product();
+        product.setCode("P00002");
+        product.setName("Product B");
+        product.setPrice((double) 2000);
+        productRepository.save(product);
+        long since = currentChangeVersion();
+
+        BulkUpdateProductRequest request = new BulkUpdateProductRequest();
+        request.setIds(List.of(1, product.getId()));
+        request.setPrice((double) 500);
+        mockMvc.perform(
+                put("/products/bulk")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk());
+
+        // Both rows carry the version of the one bulk statement, so a page of one returns both.
+        ProductChangesResponse page = changes(since, 1);
+        assertEquals(2, page.getChanged().size());
+        assertTrue(page.isHasMore());
+
+        ProductChangesResponse next = changes(page.getVersion(), 1);
+        assertTrue(next.getChanged().isEmpty());
+        assertFalse(next.isHasMore());
+    }
+
+    @Test
+    void testChangesGoneBelowHorizon() throws Exception {
+        ProductTombstone tombstone = new ProductTombstone(1000, "P01000", null, 5, Instant.now().minus(Duration.ofDays(365)));
+        productTombstoneRepository.save(tombstone);
+        productChangeLog.purge();
+
+        assertTrue(productTombstoneRepository.findById(1000).isEmpty());
+        assertEquals(5, sequenceRepository.findById("product_change_horizon").map(Sequence::getNextValue).orElseThrow());
+
+        mockMvc.perform(get("/products/changes").param("since", "4").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/products/changes").param("since", "0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testChangesFailedInvalidSince() throws Exception {
+        mockMvc.perform(get("/products/changes").param("since", "-1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long currentChangeVersion() throws Exception {
+        ProductChangesResponse page = changes(0, 1000);
+        while (page.isHasMore()) {
+            page = changes(page.getVersion(), 1000);
+        }
+        return page.getVersion();
+    }
+
+    private ProductChangesResponse changes(long since, int limit) throws Exception {
+        String body = mockMvc.perform(
+                get("/products/changes")
+                        .param("since", Long.toString(since))
+                        .param("limit", Integer.toString(limit))
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        WebResponse<ProductChangesResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData();
+    }
+
     @Test
     void testDeleteSuccess() throws Exception {
         int id = 1;
@@ -531,4 +1665,25 @@ class ProductControllerTest {
             assertEquals("failed", response.getStatus());
         });
     }
-}
\ No newline at end of file
+
+    private double serviceCalls(String method) {
+        // One timer per outcome, tagged with the exception thrown (or none).
+        return meterRegistry.find("app.service.calls")
+                .tag("class", "com.restful.product_crud.service.ProductService")
+                .tag("method", method)
+                .timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    private ProductResponse createIdempotent(CreateProductRequest request, String idempotencyKey) throws Exception {
+        String body = mockMvc.perform(
+                post("/products")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        WebResponse<ProductResponse> response = objectMapper.readValue(body, new TypeReference<>() {});
+        return response.getData();
+    }
+}
@@ -0,0 +1,208 @@
+package com.restful.product_crud.controller;
+
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CreateCategoryRequest;
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.CursorPage;
+import com.restful.product_crud.model.ListProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.WebResponse;
+import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the reactive profile against an in-memory H2 database that is shared by the JDBC pool (which the services
+ * write through) and the R2DBC pool (which the reactive handlers read through).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password="
+})
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveProductControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private CategoryResponse category;
+
+    private List<ProductResponse> products;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryService.create(new CreateCategoryRequest("Reactive Category"));
+        products = List.of(
+                productService.create(new CreateProductRequest(null, "Reactive B", 300.0, category.getId())),
+                productService.create(new CreateProductRequest(null, "Reactive A", 100.0, category.getId())),
+                productService.create(new CreateProductRequest(null, "Reactive C", 200.0, category.getId())));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productService.bulkDelete(null, category.getId());
+        categoryService.delete(category.getId());
+    }
+
+    @Test
+    void testListMatchesServletStack() {
+        for (String sort : List.of("id", "-id", "price", "-price", "name", "-name")) {
+            ListProductRequest request = ListProductRequest.builder().limit(2).categoryId(category.getId()).sort(sort).build();
+            CursorPage<ProductResponse> expected = productService.list(request);
+
+            WebResponse<List<ProductResponse>> firstPage = list("/products?limit=2&categoryId=" + category.getId() + "&sort=" + sort);
+            assertEquals("success", firstPage.getStatus());
+            assertEquals(expected.getItems(), firstPage.getData());
+            assertEquals(expected.getNextCursor(), firstPage.getNextCursor());
+
+            request.setAfter(expected.getNextCursor());
+            expected = productService.list(request);
+
+            WebResponse<List<ProductResponse>> secondPage = list("/products?limit=2&categoryId=" + category.getId() + "&sort=" + sort + "&after=" + firstPage.getNextCursor());
+            assertEquals(1, secondPage.getData().size());
+            assertEquals(expected.getItems(), secondPage.getData());
+            assertNull(secondPage.getNextCursor());
+        }
+    }
+
+    @Test
+    void testListPriceRange() {
+        WebResponse<List<ProductResponse>> response = list("/products?categoryId=" + category.getId() + "&minPrice=150&maxPrice=300&sort=price");
+
+        assertEquals(List.of("Reactive C", "Reactive B"), response.getData().stream().map(ProductResponse::getName).toList());
+    }
+
+    @Test
+    void testListInvalidSort() {
+        webTestClient.get().uri("/products?sort=code")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(new ParameterizedTypeReference<WebResponse<String>>() {})
+                .value(response -> assertEquals("failed", response.getStatus()));
+    }
+
+    @Test
+    void testListDefaultsToJson() {
+        webTestClient.get().uri("/products?categoryId=" + category.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void testStream() {
+        List<ProductResponse> streamed = webTestClient.get().uri("/products?categoryId=" + category.getId() + "&sort=-price")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(ProductResponse.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(streamed);
+        assertEquals(List.of(300.0, 200.0, 100.0), streamed.stream().map(ProductResponse::getPrice).toList());
+        assertEquals(category.getName(), streamed.get(0).getCategory().getName());
+    }
+
+    @Test
+    void testStreamCancelledEarly() {
+        List<ProductResponse> streamed = webTestClient.get().uri("/products?categoryId=" + category.getId())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .returnResult(ProductResponse.class)
+                .getResponseBody()
+                .take(1)
+                .collectList()
+                .block();
+
+        assertNotNull(streamed);
+        assertEquals(products.get(0).getId(), streamed.get(0).getId());
+    }
+
+    @Test
+    void testFindSuccess() {
+        ProductResponse product = products.get(0);
+
+        String etag = webTestClient.get().uri("/products/" + product.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<WebResponse<ProductResponse>>() {})
+                .value(response -> {
+                    assertEquals("success", response.getStatus());
+                    assertEquals(product.getCode(), response.getData().getCode());
+                    assertEquals(category.getId(), response.getData().getCategory().getId());
+                })
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        // The same tag as the servlet stack gives the JSON representation.
+        assertEquals("\"p" + product.getId() + ".0-c" + category.getId() + ".0-json\"", etag);
+        webTestClient.get().uri("/products/" + product.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void testFindNotFound() {
+        webTestClient.get().uri("/products/0")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(new ParameterizedTypeReference<WebResponse<String>>() {})
+                .value(response -> assertEquals("failed", response.getStatus()));
+    }
+
+    @Test
+    void testListCategories() {
+        webTestClient.get().uri("/categories")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<WebResponse<List<CategoryResponse>>>() {})
+                .value(response -> {
+                    assertEquals("success", response.getStatus());
+                    assertEquals(categoryService.list(), response.getData());
+                });
+    }
+
+    private WebResponse<List<ProductResponse>> list(String uri) {
+        return webTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<WebResponse<List<ProductResponse>>>() {})
+                .returnResult()
+                .getResponseBody();
+    }
+
+}
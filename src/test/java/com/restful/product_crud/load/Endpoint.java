@@ -0,0 +1,18 @@
+package com.restful.product_crud.load;
+
+/**
+ * Endpoints driven by the load tests, in report order.
+ */
+enum Endpoint {
+
+    FIND_PRODUCT("GET /products/{id}"),
+    CREATE_PRODUCT("POST /products"),
+    UPDATE_CATEGORY("PUT /categories/{id}");
+
+    final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.restful.product_crud.load;
+
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.CreateCategoryRequest;
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Categories and products seeded through the services before a load run, and random picks from them for the
+ * traffic mix.
+ */
+final class LoadCatalog {
+
+    private static final int SEED_CHUNK_SIZE = 5000;
+
+    private final int[] categoryIds;
+
+    private final int[] productIds;
+
+    private LoadCatalog(int categoryCount, int catalogSize) {
+        categoryIds = new int[categoryCount];
+        productIds = new int[catalogSize];
+    }
+
+    /**
+     * Creates {@code categoryCount} categories, then {@code catalogSize} products spread over them in batches.
+     */
+    static LoadCatalog seed(CategoryService categoryService, ProductService productService, int categoryCount, int catalogSize) {
+        LoadCatalog catalog = new LoadCatalog(categoryCount, catalogSize);
+        for (int i = 0; i < categoryCount; i++) {
+            catalog.categoryIds[i] = categoryService.create(new CreateCategoryRequest("Load Category " + i)).getId();
+        }
+
+        int seeded = 0;
+        while (seeded < catalogSize) {
+            int size = Math.min(SEED_CHUNK_SIZE, catalogSize - seeded);
+            List<CreateProductRequest> requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                requests.add(catalog.newProduct());
+            }
+
+            for (BatchItemResponse<ProductResponse> item : productService.createBatch(requests)) {
+                catalog.productIds[seeded++] = item.getData().getId();
+            }
+        }
+        return catalog;
+    }
+
+    int randomProductId(ThreadLocalRandom random) {
+        return productIds[random.nextInt(productIds.length)];
+    }
+
+    int randomCategoryId(ThreadLocalRandom random) {
+        return categoryIds[random.nextInt(categoryIds.length)];
+    }
+
+    CreateProductRequest newProduct() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return CreateProductRequest.builder()
+                .name("Load Product " + random.nextInt(1_000_000))
+                .price((double) random.nextInt(1, 100_000))
+                .categoryID(randomCategoryId(random))
+                .build();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.restful.product_crud.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a number of workers on their own threads for one phase of a load test and merges what they recorded.
+ * <p>
+ * Without a rate the workers run a closed loop: each sends its next request as soon as the previous one returns.
+ * A stall then only lowers the request count, and the requests that would have waited behind it are never sent,
+ * so the percentiles hide it (coordinated omission). With a rate the run is open loop: requests are due at fixed
+ * times spread evenly over the workers, and latency is measured from when a request was due, so time spent waiting
+ * behind a slow response counts.
+ */
+final class LoadDriver {
+
+    /**
+     * Sends requests while {@link Schedule#hasNext()} and returns the latencies it recorded.
+     */
+    @FunctionalInterface
+    interface Worker {
+
+        LoadResult work(Schedule schedule) throws Exception;
+
+    }
+
+    private LoadDriver() {
+    }
+
+    /**
+     * For report titles.
+     */
+    static String describe(double rate) {
+        return rate > 0 ? String.format(Locale.ROOT, "open loop at %.0f req/s", rate) : "closed loop";
+    }
+
+    /**
+     * @param rate requests per second over all workers, 0 or less for a closed loop
+     */
+    static LoadResult run(int workers, double rate, Duration phase, Worker worker) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + phase.toNanos();
+        long interval = rate > 0 ? Math.max(1, (long) (workers * 1e9 / rate)) : 0;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<LoadResult>> results = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                Schedule schedule = new Schedule(start + interval * i / workers, interval, deadline);
+                results.add(executor.submit(() -> worker.work(schedule)));
+            }
+
+            LoadResult total = new LoadResult();
+            for (Future<LoadResult> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * When the requests of one worker are due.
+     */
+    static final class Schedule {
+
+        private final long interval;
+
+        private final long deadline;
+
+        private long due;
+
+        private Schedule(long first, long interval, long deadline) {
+            this.due = first;
+            this.interval = interval;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Waits until the next request is due, or returns false once the phase is over.
+         */
+        boolean hasNext() {
+            if (interval == 0) {
+                return System.nanoTime() < deadline;
+            }
+
+            // A worker that fell behind still sends every request that was due before the deadline.
+            if (due >= deadline) {
+                return false;
+            }
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            return true;
+        }
+
+        /**
+         * The time latency is measured from, as {@link System#nanoTime()}. In an open loop this is when the request
+         * was due, even if the previous response held it up. Advances to the next request.
+         */
+        long start() {
+            long start = interval == 0 ? System.nanoTime() : due;
+            due += interval;
+            return start;
+        }
+
+    }
+
+}
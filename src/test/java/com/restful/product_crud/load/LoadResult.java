@@ -0,0 +1,98 @@
+package com.restful.product_crud.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency histograms per {@link Endpoint} plus failure counts. Each worker records into its own instance and the
+ * instances are merged at the end, so recording never contends between threads.
+ */
+final class LoadResult {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Histogram[] histograms = new Histogram[Endpoint.values().length];
+
+    private long errors;
+
+    private long conflicts;
+
+    LoadResult() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        }
+    }
+
+    void record(Endpoint endpoint, long elapsedNanos, int status) {
+        histograms[endpoint.ordinal()].recordValue(Math.min(elapsedNanos, HIGHEST_TRACKABLE_NANOS));
+        if (status == 409) {
+            // Two workers renaming the same category at once; expected under a mix with category writes.
+            conflicts++;
+        } else if (status >= 400) {
+            errors++;
+        }
+    }
+
+    void add(LoadResult other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].add(other.histograms[i]);
+        }
+        errors += other.errors;
+        conflicts += other.conflicts;
+    }
+
+    /**
+     * Prints requests, throughput and p50/p99/p99.9/max per endpoint, then fails on any error or, when
+     * {@code maxP99} is set, on an endpoint whose p99 is above it.
+     */
+    void report(String title, Duration phase, String maxP99) {
+        double seconds = phase.toNanos() / 1e9;
+        StringBuilder report = new StringBuilder()
+                .append(String.format(Locale.ROOT, "%n%s, %s%n", title, phase))
+                .append(String.format(Locale.ROOT, "%-22s %10s %10s %10s %10s %10s %10s%n",
+                        "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        long requests = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = histograms[endpoint.ordinal()];
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+
+            requests += histogram.getTotalCount();
+            report.append(String.format(Locale.ROOT, "%-22s %10d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+                    endpoint.label,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+
+        report.append(String.format(Locale.ROOT, "total %d requests, %.1f req/s, %d errors, %d conflicts%n",
+                requests, requests / seconds, errors, conflicts));
+        System.out.print(report);
+
+        assertEquals(0, errors, "Requests failed during the run.");
+        if (maxP99 != null) {
+            long limit = Duration.parse(maxP99).toNanos();
+            for (Endpoint endpoint : Endpoint.values()) {
+                Histogram histogram = histograms[endpoint.ordinal()];
+                if (histogram.getTotalCount() > 0) {
+                    assertTrue(histogram.getValueAtPercentile(99) <= limit, endpoint.label + " p99 is above " + maxP99 + ".");
+                }
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+}
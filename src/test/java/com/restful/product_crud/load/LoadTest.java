@@ -0,0 +1,141 @@
+package com.restful.product_crud.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restful.product_crud.model.UpdateCategoryRequest;
+import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * In-process load harness. Boots the application against an in-memory H2 database, seeds a catalog and drives
+ * the controllers through {@link MockMvc} from a fixed number of worker threads, so no network or external tool is
+ * involved. Latency per endpoint is recorded with HdrHistogram and printed as throughput plus p50/p99/p99.9.
+ * <p>
+ * The traffic mix is mostly {@code GET /products/{id}} on random seeded products, with {@code POST /products} for
+ * the writes and a small share of {@code PUT /categories/{id}}. By default workers run a closed loop: each sends its
+ * next request as soon as the previous one returns, so the numbers describe the service time at that concurrency
+ * but hide queueing behind a stall. Set {@code load.rate} to send requests at a fixed rate instead and measure
+ * latency from when each request was due, see {@link LoadDriver}.
+ * <p>
+ * Disabled by default. Run with
+ * <pre>
+ * mvn test -Dtest=LoadTest -Dload.enabled=true -Dload.catalog-size=100000 -Dload.concurrency=32
+ * </pre>
+ * Settings (system properties):
+ * <ul>
+ *     <li>{@code load.catalog-size} products seeded before the run (default 10000)</li>
+ *     <li>{@code load.categories} categories seeded before the run (default 20)</li>
+ *     <li>{@code load.concurrency} worker threads (default 16)</li>
+ *     <li>{@code load.read-ratio} share of requests that are {@code GET /products/{id}} (default 0.9)</li>
+ *     <li>{@code load.category-write-ratio} share of requests that are {@code PUT /categories/{id}} (default 0.001),
+ *     everything else is {@code POST /products}</li>
+ *     <li>{@code load.rate} requests per second over all workers for an open loop run (default 0, closed loop);
+ *     keep {@code load.concurrency} high enough that the workers are not all busy at that rate</li>
+ *     <li>{@code load.warmup} and {@code load.duration} as ISO-8601 durations (default PT10S and PT30S)</li>
+ *     <li>{@code load.max-p99} optional ISO-8601 duration; the run fails if any endpoint's p99 is above it</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "product.export.fetch-size=500",
+        "product.code.width=9"
+})
+@AutoConfigureMockMvc
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+class LoadTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private final int catalogSize = Integer.getInteger("load.catalog-size", 10000);
+
+    private final int categoryCount = Integer.getInteger("load.categories", 20);
+
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+
+    private final double readRatio = Double.parseDouble(System.getProperty("load.read-ratio", "0.9"));
+
+    private final double categoryWriteRatio = Double.parseDouble(System.getProperty("load.category-write-ratio", "0.001"));
+
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+
+    private final String maxP99 = System.getProperty("load.max-p99");
+
+    private LoadCatalog catalog;
+
+    @Test
+    void testLoad() throws Exception {
+        catalog = LoadCatalog.seed(categoryService, productService, categoryCount, catalogSize);
+
+        LoadDriver.run(concurrency, rate, warmup, this::work);
+        LoadDriver.run(concurrency, rate, duration, this::work).report(String.format("Load test: %d products, %d categories, %d workers, %s",
+                        catalogSize, categoryCount, concurrency, LoadDriver.describe(rate)),
+                duration, maxP99);
+    }
+
+    private LoadResult work(LoadDriver.Schedule schedule) throws Exception {
+        LoadResult result = new LoadResult();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (schedule.hasNext()) {
+            double roll = random.nextDouble();
+            Endpoint endpoint;
+            MockHttpServletRequestBuilder request;
+            if (roll < readRatio) {
+                endpoint = Endpoint.FIND_PRODUCT;
+                request = get("/products/" + catalog.randomProductId(random));
+            } else if (roll < readRatio + categoryWriteRatio) {
+                endpoint = Endpoint.UPDATE_CATEGORY;
+                int categoryId = catalog.randomCategoryId(random);
+                request = put("/categories/" + categoryId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateCategoryRequest("Load Category " + categoryId + "-" + random.nextInt(1000))));
+            } else {
+                endpoint = Endpoint.CREATE_PRODUCT;
+                request = post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(catalog.newProduct()));
+            }
+
+            long start = schedule.start();
+            int status = mockMvc.perform(request.accept(MediaType.APPLICATION_JSON)).andReturn().getResponse().getStatus();
+            long elapsed = System.nanoTime() - start;
+
+            result.record(endpoint, elapsed, status);
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.restful.product_crud.load;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.context.TestPropertySource;
+
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadTest extends ThreadModelLoadTest {
+
+    @Override
+    String threadModel() {
+        return "Platform threads";
+    }
+
+}
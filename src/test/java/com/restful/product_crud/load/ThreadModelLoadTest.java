@@ -0,0 +1,183 @@
+package com.restful.product_crud.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restful.product_crud.config.UntrackedConnectionIdManager;
+import com.restful.product_crud.service.CategoryService;
+import com.restful.product_crud.service.ProductService;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares request handling on platform threads ({@link PlatformThreadsLoadTest}) with virtual threads
+ * ({@link VirtualThreadsLoadTest}) over real HTTP. A large number of clients hit {@code GET /products/{id}} and
+ * {@code POST /products} on the embedded Tomcat.
+ * <p>
+ * The product cache is disabled so every read reaches the database. Each statement is delayed by
+ * {@code load.db-latency} to stand in for the MySQL round trip, since in-memory H2 answers too quickly for request
+ * threads to ever be blocked on it.
+ * <p>
+ * Both subclasses are disabled by default. Run them with
+ * <pre>
+ * mvn test -Dtest='*ThreadsLoadTest' -Dload.enabled=true -Dload.clients=1000 -Dload.pool-size=200
+ * </pre>
+ * The virtual thread run is skipped on Java versions before 21. Settings (system properties):
+ * <ul>
+ *     <li>{@code load.clients} concurrent HTTP clients (default 1000)</li>
+ *     <li>{@code load.pool-size} Hikari maximum pool size (default 50)</li>
+ *     <li>{@code load.tomcat-threads} Tomcat maximum threads for the platform thread run (default 200)</li>
+ *     <li>{@code load.db-latency} added to every statement (default PT0.005S)</li>
+ *     <li>{@code load.catalog-size}, {@code load.read-ratio}, {@code load.rate}, {@code load.warmup},
+ *     {@code load.duration} and {@code load.max-p99} as for {@link LoadTest}</li>
+ * </ul>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:threads;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.datasource.hikari.maximum-pool-size=${load.pool-size:50}",
+        "spring.datasource.hikari.minimum-idle=${load.pool-size:50}",
+        "server.tomcat.threads.max=${load.tomcat-threads:200}",
+        "product.export.fetch-size=500",
+        "product.code.width=9",
+        "product.cache.maximum-size=0"
+})
+@Import(ThreadModelLoadTest.DatabaseLatency.class)
+abstract class ThreadModelLoadTest {
+
+    private static final int CATEGORY_COUNT = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private Environment environment;
+
+    private final int catalogSize = Integer.getInteger("load.catalog-size", 10000);
+
+    private final int clients = Integer.getInteger("load.clients", 1000);
+
+    private final double readRatio = Double.parseDouble(System.getProperty("load.read-ratio", "0.9"));
+
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+
+    private final String maxP99 = System.getProperty("load.max-p99");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    private LoadCatalog catalog;
+
+    /**
+     * Describes the request thread model under test for the report.
+     */
+    abstract String threadModel();
+
+    @Test
+    void testLoad() throws Exception {
+        catalog = LoadCatalog.seed(categoryService, productService, CATEGORY_COUNT, catalogSize);
+
+        LoadDriver.run(clients, rate, warmup, this::work);
+        LoadDriver.run(clients, rate, duration, this::work).report(String.format("%s: %d clients, %s, %s pool connections, %s Tomcat threads, %s per statement",
+                        threadModel(), clients, LoadDriver.describe(rate),
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size"),
+                        environment.getProperty("server.tomcat.threads.max"),
+                        environment.getProperty("load.db-latency", "PT0.005S")),
+                duration, maxP99);
+    }
+
+    private LoadResult work(LoadDriver.Schedule schedule) throws Exception {
+        LoadResult result = new LoadResult();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (schedule.hasNext()) {
+            Endpoint endpoint;
+            HttpRequest.Builder request;
+            if (random.nextDouble() < readRatio) {
+                endpoint = Endpoint.FIND_PRODUCT;
+                request = HttpRequest.newBuilder(uri("/products/" + catalog.randomProductId(random))).GET();
+            } else {
+                endpoint = Endpoint.CREATE_PRODUCT;
+                request = HttpRequest.newBuilder(uri("/products"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(catalog.newProduct())));
+            }
+
+            long start = schedule.start();
+            int status = httpClient.send(request.header("Accept", "application/json").build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            long elapsed = System.nanoTime() - start;
+
+            result.record(endpoint, elapsed, status);
+        }
+
+        return result;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class DatabaseLatency {
+
+        @Bean
+        static BeanPostProcessor databaseLatencyPostProcessor(Environment environment) {
+            long latencyNanos = Duration.parse(environment.getProperty("load.db-latency", "PT0.005S")).toNanos();
+
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource) || latencyNanos <= 0) {
+                        return bean;
+                    }
+
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .connectionIdManager(new UntrackedConnectionIdManager())
+                            .beforeQuery((execution, queries) -> {
+                                try {
+                                    TimeUnit.NANOSECONDS.sleep(latencyNanos);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            })
+                            .build();
+                }
+            };
+        }
+    }
+
+}
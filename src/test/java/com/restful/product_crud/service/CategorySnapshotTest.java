@@ -0,0 +1,80 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.entity.Category;
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CreateCategoryRequest;
+import com.restful.product_crud.model.UpdateCategoryRequest;
+import com.restful.product_crud.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CategorySnapshotTest {
+
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void testSnapshotFollowsWrites() {
+        long version = categorySnapshot.version();
+
+        CategoryResponse created = categoryService.create(new CreateCategoryRequest("Snapshot A"));
+        assertTrue(categorySnapshot.version() > version);
+        assertEquals("Snapshot A", categorySnapshot.find(created.getId()).orElseThrow().getName());
+        assertTrue(categorySnapshot.list().stream().anyMatch(category -> category.getId() == created.getId()));
+
+        categoryService.update(created.getId(), new UpdateCategoryRequest("Snapshot B"));
+        assertEquals("Snapshot B", categorySnapshot.find(created.getId()).orElseThrow().getName());
+
+        categoryService.delete(created.getId());
+        assertTrue(categorySnapshot.find(created.getId()).isEmpty());
+    }
+
+    @Test
+    void testReloadPicksUpWritesFromElsewhere() {
+        CategoryResponse created = categoryService.create(new CreateCategoryRequest("Snapshot C"));
+        try {
+            long version = categorySnapshot.version();
+            categorySnapshot.reload();
+            assertEquals(version, categorySnapshot.version());
+
+            // Renamed without going through CategoryService, as another node would.
+            Category category = categoryRepository.findById(created.getId()).orElseThrow();
+            category.setName("Snapshot D");
+            categoryRepository.save(category);
+            assertEquals("Snapshot C", categorySnapshot.find(created.getId()).orElseThrow().getName());
+
+            categorySnapshot.reload();
+            assertEquals("Snapshot D", categorySnapshot.find(created.getId()).orElseThrow().getName());
+            assertTrue(categorySnapshot.version() > version);
+        } finally {
+            categoryService.delete(created.getId());
+        }
+    }
+
+    @Test
+    void testSnapshotIsAuthoritative() {
+        // Created without going through CategoryService, as another node would.
+        Category category = new Category();
+        category.setName("Snapshot E");
+        categoryRepository.save(category);
+        try {
+            assertTrue(categorySnapshot.findOrLoad(category.getId()).isEmpty());
+
+            categorySnapshot.reload();
+            assertEquals("Snapshot E", categorySnapshot.findOrLoad(category.getId()).orElseThrow().getName());
+        } finally {
+            categoryService.delete(category.getId());
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.BulkUpdateProductRequest;
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CategoryStatsResponse;
+import com.restful.product_crud.model.CreateCategoryRequest;
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.PatchProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.UpdateProductRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CategoryStatsTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryStats categoryStats;
+
+    @Test
+    void testStatsFollowWrites() {
+        CategoryResponse category = categoryService.create(new CreateCategoryRequest("Stats A"));
+        ProductResponse cheap = create("Stats 1", 100, category.getId());
+        ProductResponse expensive = create("Stats 2", 300, category.getId());
+        ProductResponse middle = create("Stats 3", 200, category.getId());
+
+        try {
+            CategoryStatsResponse stats = stats(category);
+            assertEquals(3, stats.getProductCount());
+            assertEquals(100, stats.getMinPrice());
+            assertEquals(300, stats.getMaxPrice());
+            assertEquals(200, stats.getAveragePrice());
+
+            productService.update(expensive.getId(), new UpdateProductRequest(null, "Stats 2", 50.0, category.getId()));
+            stats = stats(category);
+            assertEquals(3, stats.getProductCount());
+            assertEquals(50, stats.getMinPrice());
+            assertEquals(200, stats.getMaxPrice());
+
+            productService.delete(middle.getId());
+            categoryStats.refreshDirty();
+            stats = stats(category);
+            assertEquals(2, stats.getProductCount());
+            assertEquals(100, stats.getMaxPrice());
+            assertEquals(75, stats.getAveragePrice());
+
+            categoryStats.reconcile();
+            assertEquals(stats, stats(category));
+        } finally {
+            productService.bulkDelete(null, category.getId());
+            categoryService.delete(category.getId());
+        }
+
+        categoryStats.refreshDirty();
+        assertEquals(0, stats(category).getProductCount());
+    }
+
+    @Test
+    void testStatsFollowBulkWrites() {
+        CategoryResponse from = categoryService.create(new CreateCategoryRequest("Stats D"));
+        CategoryResponse to = categoryService.create(new CreateCategoryRequest("Stats E"));
+        ProductResponse first = create("Stats 6", 100, from.getId());
+        ProductResponse second = create("Stats 7", 200, from.getId());
+        ProductResponse third = create("Stats 8", 300, from.getId());
+
+        try {
+            assertEquals(3, stats(from).getProductCount());
+
+            productService.bulkUpdate(BulkUpdateProductRequest.builder().ids(List.of(first.getId(), second.getId())).price(400.0).build());
+            categoryStats.refreshDirty();
+            assertEquals(400, stats(from).getMaxPrice());
+            assertEquals(300, stats(from).getMinPrice());
+
+            productService.bulkUpdate(BulkUpdateProductRequest.builder().ids(List.of(first.getId())).categoryID(to.getId()).build());
+            categoryStats.refreshDirty();
+            assertEquals(2, stats(from).getProductCount());
+            assertEquals(1, stats(to).getProductCount());
+
+            productService.bulkDelete(List.of(second.getId()), null);
+            categoryStats.refreshDirty();
+            assertEquals(1, stats(from).getProductCount());
+            assertEquals(300, stats(from).getMaxPrice());
+
+            productService.moveCategory(from.getId(), to.getId());
+            categoryStats.refreshDirty();
+            assertEquals(0, stats(from).getProductCount());
+            assertEquals(2, stats(to).getProductCount());
+            assertEquals(300, stats(to).getMinPrice());
+        } finally {
+            productService.bulkDelete(List.of(first.getId(), second.getId(), third.getId()), null);
+            categoryService.delete(from.getId());
+            categoryService.delete(to.getId());
+        }
+    }
+
+    @Test
+    void testStatsFollowPatch() {
+        CategoryResponse from = categoryService.create(new CreateCategoryRequest("Stats B"));
+        CategoryResponse to = categoryService.create(new CreateCategoryRequest("Stats C"));
+        ProductResponse cheap = create("Stats 4", 100, from.getId());
+        ProductResponse expensive = create("Stats 5", 300, from.getId());
+
+        try {
+            assertEquals(300, stats(from).getMaxPrice());
+
+            productService.patch(expensive.getId(), new PatchProductRequest(null, null, 50.0, null));
+            categoryStats.refreshDirty();
+            CategoryStatsResponse stats = stats(from);
+            assertEquals(2, stats.getProductCount());
+            assertEquals(50, stats.getMinPrice());
+            assertEquals(100, stats.getMaxPrice());
+
+            productService.patch(cheap.getId(), new PatchProductRequest(null, null, null, to.getId()));
+            categoryStats.refreshDirty();
+            assertEquals(1, stats(from).getProductCount());
+            assertEquals(50, stats(from).getMaxPrice());
+            assertEquals(1, stats(to).getProductCount());
+            assertEquals(100, stats(to).getMinPrice());
+
+            CategoryStatsResponse moved = stats(to);
+            categoryStats.reconcile();
+            assertEquals(moved, stats(to));
+        } finally {
+            productService.bulkDelete(List.of(cheap.getId(), expensive.getId()), null);
+            categoryService.delete(from.getId());
+            categoryService.delete(to.getId());
+        }
+    }
+
+    private ProductResponse create(String name, double price, int categoryId) {
+        return productService.create(new CreateProductRequest(null, name, price, categoryId));
+    }
+
+    private CategoryStatsResponse stats(CategoryResponse category) {
+        return categoryStats.list(List.of(category)).get(0);
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.restful.product_crud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restful.product_crud.entity.IdempotencyRecord;
+import com.restful.product_crud.model.CategoryResponse;
+import com.restful.product_crud.model.CreateCategoryRequest;
+import com.restful.product_crud.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentDuplicatesCoalesced() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CreateCategoryRequest request = new CreateCategoryRequest("Idempotent");
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CategoryResponse> original = executor.submit(() -> idempotencyStore.execute("test", key, request, CategoryResponse.class, () -> {
+                runs.incrementAndGet();
+                running.countDown();
+                await(release);
+                return new CategoryResponse(1, "Idempotent", 0);
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            Future<CategoryResponse> duplicate = executor.submit(() -> idempotencyStore.execute("test", key, request, CategoryResponse.class, () -> {
+                runs.incrementAndGet();
+                return new CategoryResponse(2, "Idempotent", 0);
+            }));
+            release.countDown();
+
+            assertEquals(1, original.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(1, duplicate.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureNotRemembered() {
+        String key = UUID.randomUUID().toString();
+        CreateCategoryRequest request = new CreateCategoryRequest("Idempotent");
+
+        assertThrows(ResponseStatusException.class, () -> idempotencyStore.execute("test", key, request, CategoryResponse.class, () -> {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }));
+
+        CategoryResponse retried = idempotencyStore.execute("test", key, request, CategoryResponse.class, () -> new CategoryResponse(3, "Idempotent", 0));
+        assertEquals(3, retried.getId());
+    }
+
+    @Test
+    void testDatabaseStoreSharedBetweenNodes() {
+        String key = UUID.randomUUID().toString();
+        CreateCategoryRequest request = new CreateCategoryRequest("Idempotent");
+
+        CategoryResponse original = node().execute("test", key, request, CategoryResponse.class, () -> new CategoryResponse(4, "Idempotent", 0));
+        assertNotNull(idempotencyRecordRepository.findById("test:" + key).orElseThrow().getResponse());
+
+        CategoryResponse replayed = node().execute("test", key, request, CategoryResponse.class, () -> fail("Replay ran the request again"));
+        assertEquals(original, replayed);
+
+        ResponseStatusException mismatch = assertThrows(ResponseStatusException.class,
+                () -> node().execute("test", key, new CreateCategoryRequest("Other"), CategoryResponse.class, () -> fail("Mismatch ran the request")));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, mismatch.getStatusCode());
+    }
+
+    @Test
+    void testDatabaseStoreInProgressOnOtherNode() {
+        String key = UUID.randomUUID().toString();
+        idempotencyRecordRepository.save(new IdempotencyRecord("test:" + key, "claimed", Instant.now()));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> node().execute("test", key, new CreateCategoryRequest("Idempotent"), CategoryResponse.class, () -> fail("Claimed key ran the request")));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+    }
+
+    @Test
+    void testDatabaseStoreTakesOverAbandonedClaim() {
+        String key = UUID.randomUUID().toString();
+        idempotencyRecordRepository.save(new IdempotencyRecord("test:" + key, "claimed", Instant.now().minus(Duration.ofMinutes(10))));
+
+        CategoryResponse taken = node().execute("test", key, new CreateCategoryRequest("Idempotent"), CategoryResponse.class, () -> new CategoryResponse(5, "Idempotent", 0));
+        assertEquals(5, taken.getId());
+        assertNotNull(idempotencyRecordRepository.findById("test:" + key).orElseThrow().getResponse());
+
+        CategoryResponse replayed = node().execute("test", key, new CreateCategoryRequest("Idempotent"), CategoryResponse.class, () -> fail("Replay ran the request again"));
+        assertEquals(taken, replayed);
+    }
+
+    @Test
+    void testDatabaseStoreForgetsFailedClaim() {
+        String key = UUID.randomUUID().toString();
+        CreateCategoryRequest request = new CreateCategoryRequest("Idempotent");
+
+        assertThrows(AssertionError.class, () -> node().execute("test", key, request, CategoryResponse.class, () -> {
+            throw new AssertionError("boom");
+        }));
+        assertTrue(idempotencyRecordRepository.findById("test:" + key).isEmpty());
+
+        CategoryResponse retried = node().execute("test", key, request, CategoryResponse.class, () -> new CategoryResponse(6, "Idempotent", 0));
+        assertEquals(6, retried.getId());
+    }
+
+    /**
+     * A store with its own, empty memory, standing in for another node that shares the database.
+     */
+    private IdempotencyStore node() {
+        IdempotencyStore store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "idempotencyRecordRepository", idempotencyRecordRepository);
+        ReflectionTestUtils.setField(store, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(store, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(store, "claimTimeout", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(store, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(store, "maximumSize", 100L);
+        ReflectionTestUtils.setField(store, "databaseEnabled", true);
+        store.init();
+        return store;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
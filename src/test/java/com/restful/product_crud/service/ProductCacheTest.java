@@ -0,0 +1,31 @@
+package com.restful.product_crud.service;
+
+import com.restful.product_crud.model.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    @Test
+    void testLoaderErrorDoesNotStrandReaders() {
+        ProductCache productCache = new ProductCache();
+        ReflectionTestUtils.setField(productCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(productCache, "expireAfterWrite", Duration.ofMinutes(1));
+        productCache.init();
+
+        assertThrows(StackOverflowError.class, () -> productCache.get(1, id -> {
+            throw new StackOverflowError();
+        }));
+
+        // The failed load is not left behind for the next reader to wait on.
+        ProductResponse loaded = productCache.get(1, id -> ProductResponse.builder().id(id).code("P00001").build());
+        assertEquals("P00001", loaded.getCode());
+    }
+
+}
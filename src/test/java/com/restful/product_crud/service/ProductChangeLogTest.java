@@ -0,0 +1,62 @@
+package com.restful.product_crud.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProductChangeLogTest {
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testReadsStopBelowVersionsInFlight() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Long> slow = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            long version = productChangeLog.next();
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return version;
+        }));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+
+        // A later version commits first, but stays hidden until the earlier one is done.
+        long fast = transactionTemplate.execute(status -> productChangeLog.next());
+        long pending = productChangeLog.visibleBelow();
+        assertTrue(pending < fast);
+
+        release.countDown();
+        long slowVersion = slow.get(5, TimeUnit.SECONDS);
+        assertEquals(slowVersion, pending);
+        assertTrue(productChangeLog.visibleBelow() > fast);
+    }
+
+    @Test
+    void testOwnVersionsVisible() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            long version = productChangeLog.next();
+            assertTrue(productChangeLog.visibleBelow() > version);
+        });
+    }
+
+}
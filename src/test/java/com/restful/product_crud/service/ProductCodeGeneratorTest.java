@@ -1,9 +1,20 @@
 package com.restful.product_crud.service;
 
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.repository.ProductRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -12,6 +23,12 @@ class ProductCodeGeneratorTest {
     @Autowired
     private ProductCodeGenerator productCodeGenerator;
 
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     @Test
     void testValidateCodeSuccess() {
         assertTrue(productCodeGenerator.validateCode("P00001"));
@@ -21,4 +38,52 @@ class ProductCodeGeneratorTest {
     void testValidateCodeFailed() {
         assertFalse(productCodeGenerator.validateCode("PD0001"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGenerateSuccess() {
+        String first = productCodeGenerator.generate();
+        String second = productCodeGenerator.generate();
+
+        assertTrue(productCodeGenerator.validateCode(first));
+        assertTrue(productCodeGenerator.validateCode(second));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void testConcurrentCreateNeverCollides() throws Exception {
+        int threads = 16;
+        int productsPerThread = 25;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<ProductResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                List<ProductResponse> created = new ArrayList<>();
+                for (int j = 0; j < productsPerThread; j++) {
+                    CreateProductRequest request = new CreateProductRequest();
+                    request.setName("Concurrent Product");
+                    request.setPrice((double) 1000);
+                    created.add(productService.create(request));
+                }
+                return created;
+            }));
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        Set<String> codes = new HashSet<>();
+        try {
+            for (Future<List<ProductResponse>> future : futures) {
+                for (ProductResponse productResponse : future.get()) {
+                    ids.add(productResponse.getId());
+                    codes.add(productResponse.getCode());
+                }
+            }
+        } finally {
+            executor.shutdown();
+            productRepository.deleteAllById(ids);
+        }
+
+        assertEquals(threads * productsPerThread, ids.size());
+        assertEquals(threads * productsPerThread, codes.size());
+    }
+}
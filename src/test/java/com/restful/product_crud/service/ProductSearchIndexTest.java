@@ -0,0 +1,88 @@
+package com.restful.product_crud.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    @Test
+    void testSearchMatchesAllTerms() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(1, "Red Apple");
+        index.index(2, "Green Apple Juice");
+        index.index(3, "Red Wine");
+
+        assertArrayEquals(new int[]{1}, index.search("apple red", 10));
+        assertArrayEquals(new int[]{1, 3}, index.search("RED", 10));
+        assertArrayEquals(new int[0], index.search("red juice", 10));
+        assertArrayEquals(new int[0], index.search("banana", 10));
+    }
+
+    @Test
+    void testSearchRanksShorterNamesFirst() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(1, "Apple Juice Box Large");
+        index.index(2, "Apple Juice");
+        index.index(3, "Apple Juice Box");
+
+        assertArrayEquals(new int[]{2, 3, 1}, index.search("apple juice", 10));
+        assertArrayEquals(new int[]{2, 3}, index.search("apple juice", 2));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(1, "Red Apple");
+        index.index(1, "Green Pear");
+        index.index(2, "Green Apple");
+
+        assertArrayEquals(new int[]{2}, index.search("apple", 10));
+        assertArrayEquals(new int[]{1, 2}, index.search("green", 10));
+
+        index.remove(2);
+        assertArrayEquals(new int[0], index.search("apple", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testTransactionAppliedOnCommit() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.index(5, "Blue Apple");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.index(7, "Apple Pie");
+            index.index(3, "Apple Tart");
+            index.index(9, "Apple Cake");
+            index.remove(9);
+            index.index(5, "Blue Plum");
+            assertArrayEquals(new int[0], index.search("pie", 10));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertArrayEquals(new int[]{3, 7}, index.search("apple", 10));
+        assertArrayEquals(new int[]{5}, index.search("plum", 10));
+        assertEquals(3, index.size());
+
+        index.index(11, "Apple");
+        index.index(1, "Apple");
+        assertArrayEquals(new int[]{1, 11, 3, 7}, index.search("apple", 10));
+        index.remove(11);
+        assertArrayEquals(new int[]{1, 3, 7}, index.search("apple", 10));
+    }
+
+    @Test
+    void testTokenize() {
+        assertArrayEquals(new String[]{"usb", "c", "cable", "2m"}, ProductSearchIndex.tokenize("USB-C cable, 2m (USB)"));
+        assertArrayEquals(new String[0], ProductSearchIndex.tokenize("  - "));
+    }
+
+}
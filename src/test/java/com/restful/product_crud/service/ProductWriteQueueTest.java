@@ -0,0 +1,230 @@
+package com.restful.product_crud.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restful.product_crud.model.BatchItemResponse;
+import com.restful.product_crud.model.CreateProductRequest;
+import com.restful.product_crud.model.ProductResponse;
+import com.restful.product_crud.model.QueuedProductResponse;
+import com.restful.product_crud.model.WebResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductWriteQueueTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void testQueuedCreate() throws Exception {
+        CreateProductRequest request = new CreateProductRequest(null, "Queued Product", 1000.0, 0);
+
+        String location = mockMvc.perform(
+                post("/products")
+                        .header("Prefer", "respond-async")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isAccepted(),
+                header().string("Preference-Applied", "respond-async")
+        ).andReturn().getResponse().getHeader("Location");
+
+        assertNotNull(location);
+        QueuedProductResponse queued = awaitWritten(location);
+        try {
+            assertEquals("success", queued.getStatus());
+            assertEquals(location, "/products/queue/" + queued.getCode());
+
+            ProductResponse product = productService.find(queued.getData().getId());
+            assertEquals(queued.getCode(), product.getCode());
+            assertEquals("Queued Product", product.getName());
+        } finally {
+            productService.delete(queued.getData().getId());
+        }
+    }
+
+    @Test
+    void testQueuedCreateValidatedUpFront() throws Exception {
+        CreateProductRequest request = new CreateProductRequest(null, "", 1000.0, 0);
+
+        mockMvc.perform(
+                post("/products")
+                        .header("Prefer", "respond-async")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void testQueuedNotFound() throws Exception {
+        mockMvc.perform(
+                get("/products/queue/P99999")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void testFullQueueRejectedAndDrainedOnStop() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ProductService service = mock(ProductService.class);
+        when(service.prepareCreate(any())).thenAnswer(invocation -> {
+            CreateProductRequest request = invocation.getArgument(0);
+            return CreateProductRequest.builder().code(request.getName()).name(request.getName()).price(request.getPrice()).build();
+        });
+        when(service.createBatch(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<CreateProductRequest> batch = invocation.getArgument(0);
+            return batch.stream()
+                    .map(request -> BatchItemResponse.<ProductResponse>builder().status("success")
+                            .data(ProductResponse.builder().code(request.getCode()).build()).build())
+                    .toList();
+        });
+
+        ProductWriteQueue queue = newQueue(service, 1);
+        queue.start();
+
+        queue.submit(new CreateProductRequest(null, "P00001", 1.0, 0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // The writer is busy with the first product, so the second fills the queue and the third is turned away.
+        queue.submit(new CreateProductRequest(null, "P00002", 1.0, 0));
+        ResponseStatusException full = assertThrows(ResponseStatusException.class,
+                () -> queue.submit(new CreateProductRequest(null, "P00003", 1.0, 0)));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, full.getStatusCode());
+        assertEquals(ProductWriteQueue.PENDING, queue.find("P00002").getStatus());
+
+        release.countDown();
+        queue.stop();
+
+        assertFalse(queue.isRunning());
+        assertEquals("success", queue.find("P00001").getStatus());
+        assertEquals("success", queue.find("P00002").getStatus());
+        assertThrows(ResponseStatusException.class, () -> queue.find("P00003"));
+
+        ResponseStatusException stopped = assertThrows(ResponseStatusException.class,
+                () -> queue.submit(new CreateProductRequest(null, "P00004", 1.0, 0)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, stopped.getStatusCode());
+    }
+
+    @Test
+    void testTransientFailureRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        ProductService service = mock(ProductService.class);
+        when(service.createBatch(anyList())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new CannotAcquireLockException("Deadlock found when trying to get lock");
+            }
+            return succeeded(invocation.getArgument(0));
+        });
+
+        ProductWriteQueue queue = newQueue(service, 10);
+        ReflectionTestUtils.invokeMethod(queue, "write", List.of(queued("P00001"), queued("P00002")));
+
+        assertEquals(2, attempts.get());
+        assertEquals("success", queue.find("P00001").getStatus());
+        assertEquals("success", queue.find("P00002").getStatus());
+    }
+
+    @Test
+    void testConstraintViolationFailsOnlyOffendingProduct() {
+        ProductService service = mock(ProductService.class);
+        when(service.createBatch(anyList())).thenAnswer(invocation -> {
+            List<CreateProductRequest> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(request -> request.getCode().equals("P00003"))) {
+                throw new DataIntegrityViolationException("Duplicate entry 'P00003' for key 'products.code'");
+            }
+            return succeeded(batch);
+        });
+
+        ProductWriteQueue queue = newQueue(service, 10);
+        ReflectionTestUtils.invokeMethod(queue, "write",
+                List.of(queued("P00001"), queued("P00002"), queued("P00003"), queued("P00004"), queued("P00005")));
+
+        assertEquals("failed", queue.find("P00003").getStatus());
+        for (String code : List.of("P00001", "P00002", "P00004", "P00005")) {
+            assertEquals("success", queue.find(code).getStatus());
+        }
+    }
+
+    private static ProductWriteQueue newQueue(ProductService service, int capacity) {
+        ProductWriteQueue queue = new ProductWriteQueue();
+        ReflectionTestUtils.setField(queue, "productService", service);
+        ReflectionTestUtils.setField(queue, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(queue, "capacity", capacity);
+        ReflectionTestUtils.setField(queue, "batchSize", 10);
+        ReflectionTestUtils.setField(queue, "statusRetention", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(queue, "statusMaximumSize", 100L);
+        ReflectionTestUtils.setField(queue, "shutdownTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "retryBackoff", Duration.ofMillis(1));
+        queue.init();
+        return queue;
+    }
+
+    private static CreateProductRequest queued(String code) {
+        return CreateProductRequest.builder().code(code).name(code).price(1.0).build();
+    }
+
+    private static List<BatchItemResponse<ProductResponse>> succeeded(List<CreateProductRequest> batch) {
+        return batch.stream()
+                .map(request -> BatchItemResponse.<ProductResponse>builder().status("success")
+                        .data(ProductResponse.builder().code(request.getCode()).build()).build())
+                .toList();
+    }
+
+    private QueuedProductResponse awaitWritten(String location) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            String body = mockMvc.perform(get(location).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            QueuedProductResponse queued = objectMapper.readValue(body, new TypeReference<WebResponse<QueuedProductResponse>>() {}).getData();
+            if (!ProductWriteQueue.PENDING.equals(queued.getStatus()) || System.nanoTime() > deadline) {
+                return queued;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+}
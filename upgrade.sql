@@ -0,0 +1,56 @@
+-- Brings a database created from an earlier init.sql up to date. init.sql only runs on an empty data directory, so
+-- existing databases need this once, before the new version of the application is started. MySQL has no
+-- ADD COLUMN IF NOT EXISTS, so run each statement only if the column, index or row is not there yet.
+USE `product_crud_db`;
+
+-- Optimistic locking and ETags.
+ALTER TABLE `categories` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE `products` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+
+-- Code uniqueness is left to the database. Fails if two products already share a code; rename one of them first:
+-- SELECT `code`, COUNT(*) FROM `products` GROUP BY `code` HAVING COUNT(*) > 1;
+ALTER TABLE `products` ADD UNIQUE KEY uk_products_code (code);
+
+-- Filters and sort orders of GET /products.
+CREATE INDEX idx_products_category ON `products` (category_id);
+CREATE INDEX idx_products_category_price ON `products` (category_id, price);
+CREATE INDEX idx_products_category_name ON `products` (category_id, name);
+CREATE INDEX idx_products_price ON `products` (price);
+CREATE INDEX idx_products_name ON `products` (name);
+
+-- GET /products/changes. Existing products get version 1, so a sync from since=0 returns them.
+ALTER TABLE `products` ADD COLUMN `change_version` BIGINT NOT NULL DEFAULT 0;
+UPDATE `products` SET `change_version` = 1;
+CREATE INDEX idx_products_change_version ON `products` (change_version);
+
+CREATE TABLE IF NOT EXISTS `sequences` (
+    `name` VARCHAR(50) PRIMARY KEY NOT NULL,
+    `next_value` BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS `product_tombstones` (
+    `product_id` INT PRIMARY KEY NOT NULL,
+    `code` VARCHAR(50),
+    `category_id` INT,
+    `change_version` BIGINT NOT NULL,
+    `deleted_at` TIMESTAMP(6),
+     KEY idx_product_tombstones_change_version (change_version)
+);
+
+-- Only if product_tombstones existed before it kept the category.
+-- ALTER TABLE `product_tombstones` ADD COLUMN `category_id` INT AFTER `code`;
+
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+    `idempotency_key` VARCHAR(300) PRIMARY KEY NOT NULL,
+    `fingerprint` VARCHAR(64),
+    `response` TEXT,
+    `created_at` TIMESTAMP(6),
+     KEY idx_idempotency_keys_created_at (created_at)
+);
+
+INSERT IGNORE INTO `sequences` (`name`, `next_value`)
+SELECT 'product_code', COALESCE(MAX(CAST(SUBSTRING(`code`, 2) AS UNSIGNED)), 0) + 1
+FROM `products`
+WHERE `code` REGEXP '^P[0-9]{5}$';
+
+INSERT IGNORE INTO `sequences` (`name`, `next_value`) VALUES ('product_change', 2), ('product_change_horizon', 0);